@@ -20,6 +20,36 @@ function Dashboard({ isAdmin }) {
     loadSweets()
   }, [])
 
+  // Live stock and price updates; after a dropped connection the catalog is reloaded before resuming
+  useEffect(() => {
+    const controller = new AbortController()
+    let retryDelay = 1000
+    let connected = false
+
+    const connect = async () => {
+      while (!controller.signal.aborted) {
+        try {
+          const pending = sweetsAPI.stream(applyChange, controller.signal)
+          if (connected) {
+            refreshSweets()
+          }
+          connected = true
+          retryDelay = 1000
+          await pending
+        } catch (err) {
+          if (controller.signal.aborted) {
+            return
+          }
+        }
+        await new Promise(resolve => setTimeout(resolve, retryDelay))
+        retryDelay = Math.min(retryDelay * 2, 30000)
+      }
+    }
+    connect()
+
+    return () => controller.abort()
+  }, [])
+
   useEffect(() => {
     applyFilters()
   }, [sweets, searchTerm, categoryFilter, priceRange])
@@ -43,6 +73,37 @@ function Dashboard({ isAdmin }) {
     }
   }
 
+  const refreshSweets = async () => {
+    try {
+      const response = await sweetsAPI.getAll()
+      setSweets(response.data)
+      setCategories([...new Set(response.data.map(s => s.category))])
+    } catch (err) {
+      console.error('Refresh error:', err)
+    }
+  }
+
+  const applyChange = (change) => {
+    setSweets(prevSweets => {
+      if (change.type === 'DELETED') {
+        return prevSweets.filter(s => s.id !== change.id)
+      }
+      const { type, ...fields } = change
+      const existing = prevSweets.find(s => s.id === change.id)
+      if (!existing) {
+        return fields.name ? [...prevSweets, fields] : prevSweets
+      }
+      // Changes can overtake the response of the request that caused them
+      if (existing.version != null && fields.version != null && fields.version <= existing.version) {
+        return prevSweets
+      }
+      return prevSweets.map(s => s.id === change.id ? { ...s, ...fields } : s)
+    })
+    if (change.category) {
+      setCategories(prev => prev.includes(change.category) ? prev : [...prev, change.category])
+    }
+  }
+
   const applyFilters = () => {
     let filtered = [...sweets]
 
@@ -71,7 +132,8 @@ function Dashboard({ isAdmin }) {
 
   const handleSweetUpdate = (updatedSweet) => {
     setSweets(prevSweets => {
-      const updated = prevSweets.map(s => s.id === updatedSweet.id ? updatedSweet : s)
+      const updated = prevSweets.map(s =>
+        s.id === updatedSweet.id && !(s.version > updatedSweet.version) ? updatedSweet : s)
       return updated
     })
   }
@@ -1,4 +1,4 @@
-import { useState } from 'react'
+import { useRef, useState } from 'react'
 import { sweetsAPI } from '../services/api'
 import './SweetCard.css'
 
@@ -6,6 +6,8 @@ function SweetCard({ sweet, onUpdate, isAdmin, onEdit, onDelete }) {
   const [purchasing, setPurchasing] = useState(false)
   const [purchaseQuantity, setPurchaseQuantity] = useState(1)
   const [error, setError] = useState('')
+  // Pressing Purchase again after a failed attempt retries the same purchase, so it keeps its idempotency key
+  const pendingPurchase = useRef(null)
 
   const handlePurchase = async () => {
     if (purchaseQuantity <= 0) {
@@ -21,12 +23,21 @@ function SweetCard({ sweet, onUpdate, isAdmin, onEdit, onDelete }) {
     setPurchasing(true)
     setError('')
 
+    if (pendingPurchase.current?.quantity !== purchaseQuantity) {
+      pendingPurchase.current = { quantity: purchaseQuantity, key: crypto.randomUUID() }
+    }
+
     try {
-      const response = await sweetsAPI.purchase(sweet.id, purchaseQuantity)
+      const response = await sweetsAPI.purchase(sweet.id, purchaseQuantity, pendingPurchase.current.key)
+      pendingPurchase.current = null
       onUpdate(response.data)
       setPurchaseQuantity(1)
       setError('') // Clear any previous errors on success
     } catch (err) {
+      // A 4xx is a final answer; only a lost response or a server error leaves the purchase to retry
+      if (err.response && err.response.status < 500) {
+        pendingPurchase.current = null
+      }
       const errorMsg = err.response?.data || err.message || 'Purchase failed'
       setError(errorMsg)
       console.error('Purchase error:', err)
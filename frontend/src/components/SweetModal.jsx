@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react'
+import { useState, useEffect, useRef } from 'react'
 import { sweetsAPI } from '../services/api'
 import './SweetModal.css'
 
@@ -13,6 +13,8 @@ function SweetModal({ sweet, onClose, onSave }) {
   const [error, setError] = useState('')
   const [restockMode, setRestockMode] = useState(false)
   const [restockQuantity, setRestockQuantity] = useState('')
+  // Submitting again after a failed attempt retries the same restock, so it keeps its idempotency key
+  const pendingRestock = useRef(null)
 
   useEffect(() => {
     if (sweet) {
@@ -95,11 +97,20 @@ function SweetModal({ sweet, onClose, onSave }) {
     setError('')
     setLoading(true)
 
+    const quantity = parseInt(restockQuantity)
+    if (pendingRestock.current?.quantity !== quantity) {
+      pendingRestock.current = { quantity, key: crypto.randomUUID() }
+    }
+
     try {
-      await sweetsAPI.restock(sweet.id, parseInt(restockQuantity))
+      await sweetsAPI.restock(sweet.id, quantity, pendingRestock.current.key)
+      pendingRestock.current = null
       onSave()
       onClose()
     } catch (err) {
+      if (err.response && err.response.status < 500) {
+        pendingRestock.current = null
+      }
       setError(err.response?.data || 'Failed to restock')
     } finally {
       setLoading(false)
@@ -53,8 +53,49 @@ export const sweetsAPI = {
   create: (sweet) => api.post('/sweets', sweet),
   update: (id, sweet) => api.put(`/sweets/${id}`, sweet),
   delete: (id) => api.delete(`/sweets/${id}`),
-  purchase: (id, quantity) => api.post(`/sweets/${id}/purchase`, null, { params: { quantity } }),
-  restock: (id, quantity) => api.post(`/sweets/${id}/restock`, null, { params: { quantity } }),
+  // Callers create the key once per user action and pass the same one when they retry it
+  purchase: (id, quantity, idempotencyKey) =>
+    api.post(`/sweets/${id}/purchase`, null, { params: { quantity }, headers: { 'Idempotency-Key': idempotencyKey } }),
+  restock: (id, quantity, idempotencyKey) =>
+    api.post(`/sweets/${id}/restock`, null, { params: { quantity }, headers: { 'Idempotency-Key': idempotencyKey } }),
+  stream: (onChange, signal) => streamChanges(onChange, signal),
+}
+
+// EventSource cannot send the Authorization header, so the event stream is read with fetch instead.
+// Resolves when the server closes the stream and rejects when the connection fails or is aborted.
+async function streamChanges(onChange, signal) {
+  const token = localStorage.getItem('token')
+  const response = await fetch(`${API_BASE_URL}/sweets/stream`, {
+    headers: {
+      Accept: 'text/event-stream',
+      ...(token ? { Authorization: `Bearer ${token}` } : {}),
+    },
+    signal,
+  })
+  if (!response.ok) {
+    throw new Error(`Change stream unavailable (${response.status})`)
+  }
+
+  const reader = response.body.pipeThrough(new TextDecoderStream()).getReader()
+  let buffer = ''
+  for (;;) {
+    const { value, done } = await reader.read()
+    if (done) {
+      return
+    }
+    buffer += value
+    let boundary
+    while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+      const data = buffer.slice(0, boundary).split('\n')
+        .filter(line => line.startsWith('data:'))
+        .map(line => line.slice(5))
+        .join('\n')
+      buffer = buffer.slice(boundary + 2)
+      if (data) {
+        onChange(JSON.parse(data))
+      }
+    }
+  }
 }
 
 export default api
@@ -0,0 +1,97 @@
+package com.sweetshop.benchmarks;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import org.bson.Document;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Deterministic synthetic catalogs and an in-memory stand-in for {@link SweetRepository}, so benchmarks
+ * measure the application code rather than a database round trip.
+ */
+final class Catalog {
+
+    static final String[] CATEGORIES = {"Chocolate", "Candy", "Toffee", "Gummy", "Pastry", "Cookie", "Fudge", "Mint"};
+    private static final String[] ADJECTIVES = {"Dark", "Milk", "Salted", "Sour", "Crunchy", "Honey", "Vanilla",
+            "Cherry", "Lemon", "Caramel", "Hazelnut", "Berry", "Coconut", "Spiced", "Royal", "Golden"};
+    private static final String[] NOUNS = {"Truffle", "Bar", "Drops", "Bites", "Twist", "Swirl", "Crunch",
+            "Delight", "Brittle", "Bonbon", "Fudge", "Lollipop", "Marshmallow", "Praline", "Nougat", "Wafer"};
+
+    private Catalog() {
+    }
+
+    static List<Sweet> generate(int size) {
+        Random random = new Random(42);
+        List<Sweet> sweets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+            BigDecimal price = BigDecimal.valueOf(50 + random.nextInt(2000), 2);
+            sweets.add(new Sweet(String.format("%024x", i), name, CATEGORIES[i % CATEGORIES.length],
+                    price, random.nextInt(500)));
+        }
+        return sweets;
+    }
+
+    /**
+     * Repository whose {@code findAll}, {@code streamAll} and {@code search} are answered by scanning
+     * {@code sweets}; any other call fails.
+     */
+    static SweetRepository repositoryOver(List<Sweet> sweets) {
+        return (SweetRepository) Proxy.newProxyInstance(Catalog.class.getClassLoader(),
+                new Class<?>[]{SweetRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> sweets;
+                    case "streamAll" -> sweets.stream();
+                    case "search" -> sweets.stream().filter(matching((SweetSearchCriteria) args[0])).toList();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemorySweetRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Predicate<Sweet> matching(SweetSearchCriteria criteria) {
+        Predicate<Sweet> predicate = sweet -> true;
+        Set<String> ids = idRestriction(criteria);
+        if (ids != null) {
+            predicate = predicate.and(sweet -> ids.contains(sweet.getId()));
+        }
+        if (criteria.getCategory() != null) {
+            predicate = predicate.and(sweet -> sweet.getCategory().equalsIgnoreCase(criteria.getCategory()));
+        }
+        if (criteria.getMinPrice() != null) {
+            predicate = predicate.and(sweet -> sweet.getPrice().compareTo(criteria.getMinPrice()) >= 0);
+        }
+        if (criteria.getMaxPrice() != null) {
+            predicate = predicate.and(sweet -> sweet.getPrice().compareTo(criteria.getMaxPrice()) <= 0);
+        }
+        if (criteria.getName() != null) {
+            String name = criteria.getName().toLowerCase(Locale.ROOT);
+            predicate = predicate.and(sweet -> sweet.getName().toLowerCase(Locale.ROOT).contains(name));
+        }
+        return predicate;
+    }
+
+    // The id set is only visible through the generated query document
+    private static Set<String> idRestriction(SweetSearchCriteria criteria) {
+        Object idFilter = criteria.toQuery().getQueryObject().get("id");
+        if (idFilter instanceof Document document && document.get("$in") instanceof Collection<?> ids) {
+            Set<String> result = new HashSet<>();
+            ids.forEach(id -> result.add(id.toString()));
+            return result;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sweetshop.benchmarks;
+
+import com.sweetshop.backend.auth.exception.InvalidCredentialsException;
+import com.sweetshop.backend.common.GlobalExceptionHandler;
+import com.sweetshop.backend.sweets.controller.SweetController;
+import com.sweetshop.backend.sweets.exception.InsufficientStockException;
+import com.sweetshop.backend.sweets.exception.InvalidQuantityException;
+import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Error responses as the controllers produce them: the exception is created (and its stack trace filled in)
+ * by the service layer, then mapped by {@link GlobalExceptionHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private MethodParameter createSweetBody;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        createSweetBody = new MethodParameter(SweetController.class.getMethod("createSweet", Sweet.class), 0);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> sweetNotFound() {
+        return handler.handleSweetNotFound(new SweetNotFoundException("Sweet not found: 42"));
+    }
+
+    @Benchmark
+    public ResponseEntity<String> insufficientStock() {
+        return handler.handleInsufficientStock(new InsufficientStockException("Insufficient stock for sweet: 42"));
+    }
+
+    @Benchmark
+    public ResponseEntity<String> invalidCredentials() {
+        return handler.handleInvalidCredentials(new InvalidCredentialsException());
+    }
+
+    @Benchmark
+    public ResponseEntity<String> invalidQuantity() {
+        return handler.handleIllegalArgument(new InvalidQuantityException("Quantity to purchase must be positive"));
+    }
+
+    @Benchmark
+    public ResponseEntity<String> validationFailure() {
+        BeanPropertyBindingResult result = new BeanPropertyBindingResult(new Sweet(), "sweet");
+        result.addError(new FieldError("sweet", "name", "Name is required"));
+        result.addError(new FieldError("sweet", "price", "Price is required"));
+        return handler.handleValidationExceptions(new MethodArgumentNotValidException(createSweetBody, result));
+    }
+}
@@ -0,0 +1,85 @@
+package com.sweetshop.benchmarks;
+
+import com.sweetshop.backend.sweets.cache.SweetCache;
+import com.sweetshop.backend.sweets.dto.SweetSuggestion;
+import com.sweetshop.backend.sweets.facets.CategoryFacetIndex;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.search.SweetSearchIndex;
+import com.sweetshop.backend.sweets.service.SweetService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SweetService#searchSweets} over catalogs of different sizes, with the repository answered in memory.
+ * The uncached variants drop the query cache first, so they measure the repository query plus filtering;
+ * {@code searchCached} measures a repeat of the same query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SweetSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private SweetCache cache;
+    private SweetSearchIndex index;
+    private SweetService service;
+
+    @Setup
+    public void setUp() {
+        SweetRepository repository = Catalog.repositoryOver(Catalog.generate(catalogSize));
+        cache = new SweetCache(10_000, Duration.ofMinutes(10));
+        index = new SweetSearchIndex(repository, new SyncTaskExecutor());
+        index.rebuild();
+        service = new SweetService(repository, cache, index, new CategoryFacetIndex(repository, new SyncTaskExecutor()),
+                event -> { }, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public List<Sweet> searchByNameUncached() {
+        cache.invalidateAll();
+        return service.searchSweets("truffle 1", null, null, null);
+    }
+
+    @Benchmark
+    public List<Sweet> searchByCategoryAndPriceUncached() {
+        cache.invalidateAll();
+        return service.searchSweets(null, "chocolate", new BigDecimal("2.00"), new BigDecimal("8.00"));
+    }
+
+    @Benchmark
+    public List<Sweet> searchCached() {
+        return service.searchSweets("truffle 1", "chocolate", null, null);
+    }
+
+    @Benchmark
+    public List<SweetSuggestion> suggest() {
+        return index.suggest("cara", 10);
+    }
+
+    @Benchmark
+    public List<String> rankedSearchWithTypo() {
+        return index.rankedSearch("carmel trufle", 20);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sweetshop.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of a {@code List<Sweet>} response body with an object mapper configured the way Spring Boot
+ * configures the one used by the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SweetSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int listSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<Sweet> sweets;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Sweet.class));
+        sweets = Catalog.generate(listSize);
+        Instant now = Instant.now();
+        sweets.forEach(sweet -> sweet.setUpdatedAt(now));
+    }
+
+    @Benchmark
+    public byte[] writeWithMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(sweets);
+    }
+
+    @Benchmark
+    public byte[] writeWithTypedWriter() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(sweets);
+    }
+}
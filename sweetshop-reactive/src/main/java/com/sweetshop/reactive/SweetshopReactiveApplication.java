@@ -0,0 +1,16 @@
+package com.sweetshop.reactive;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+
+@SpringBootApplication
+@EntityScan(basePackageClasses = Sweet.class)
+public class SweetshopReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(SweetshopReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.sweetshop.reactive.security;
+
+import com.sweetshop.backend.security.JwtService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@code JwtAuthenticationFilter}. Token verification is a cached HMAC check, so it
+ * runs inline on the event loop; the resulting authentication is carried in the Reactor context.
+ */
+public class ReactiveJwtAuthenticationFilter implements WebFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+
+    public ReactiveJwtAuthenticationFilter(JwtService jwtService) {
+        this.jwtService = jwtService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            return chain.filter(exchange);
+        }
+
+        String token = authHeader.substring(BEARER_PREFIX.length());
+        return jwtService.verify(token)
+                .map(principal -> new UsernamePasswordAuthenticationToken(
+                        principal.getEmail(), null, principal.getAuthorities()))
+                .map(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .orElseGet(() -> chain.filter(exchange));
+    }
+}
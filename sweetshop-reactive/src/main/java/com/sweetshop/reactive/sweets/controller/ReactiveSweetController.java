@@ -0,0 +1,135 @@
+package com.sweetshop.reactive.sweets.controller;
+
+import com.sweetshop.backend.sweets.dto.BatchPurchaseRequest;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.SweetPage;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import com.sweetshop.reactive.sweets.service.ReactiveSweetService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Same {@code /api/sweets} contract as the servlet {@code SweetController}. List and search results are
+ * written element by element as the cursor delivers them: a JSON array by default, or one document per line
+ * when the client asks for {@code application/x-ndjson}. Either way, demand from the connection drives how
+ * fast documents are read from MongoDB.
+ */
+@RestController
+@RequestMapping("/api/sweets")
+public class ReactiveSweetController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final ReactiveSweetService sweetService;
+
+    public ReactiveSweetController(ReactiveSweetService sweetService) {
+        this.sweetService = sweetService;
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Sweet>> createSweet(@jakarta.validation.Valid @RequestBody Sweet sweet) {
+        return sweetService.createSweet(sweet)
+                .map(created -> ResponseEntity.status(HttpStatus.CREATED).body(created));
+    }
+
+    // Without limit/cursor the legacy unpaginated array is returned for older clients
+    @GetMapping(params = {"!limit", "!cursor"},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Sweet> getAllSweets() {
+        return sweetService.getAllSweets();
+    }
+
+    @GetMapping
+    public Mono<SweetPage> getSweetsPage(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        SweetSearchCriteria all = new SweetSearchCriteria(null, null, null, null);
+        return sweetService.getSweetsPage(all, cursor, pageSize(limit));
+    }
+
+    @GetMapping(value = "/search", params = {"!limit", "!cursor"},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Sweet> searchSweets(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice) {
+        return sweetService.searchSweets(name, category, minPrice, maxPrice);
+    }
+
+    @GetMapping("/search")
+    public Mono<SweetPage> searchSweetsPage(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        SweetSearchCriteria criteria = new SweetSearchCriteria(name, category, minPrice, maxPrice);
+        return sweetService.getSweetsPage(criteria, cursor, pageSize(limit));
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit != null ? limit : DEFAULT_PAGE_SIZE;
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Sweet> getSweet(@PathVariable String id) {
+        return sweetService.getSweet(id);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<Sweet> exportSweets(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant updatedSince) {
+        return sweetService.exportSweets(updatedSince);
+    }
+
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<Sweet> updateSweet(@PathVariable String id, @jakarta.validation.Valid @RequestBody Sweet sweet) {
+        return sweetService.updateSweet(id, sweet);
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Void>> deleteSweet(@PathVariable String id) {
+        return sweetService.deleteSweet(id)
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @PostMapping("/{id}/purchase")
+    public Mono<Sweet> purchaseSweet(
+            @PathVariable String id,
+            @RequestParam("quantity") int quantity) {
+        return sweetService.purchaseSweet(id, quantity);
+    }
+
+    @PostMapping("/purchase/batch")
+    public Mono<ResponseEntity<BatchPurchaseResponse>> purchaseSweets(
+            @jakarta.validation.Valid @RequestBody BatchPurchaseRequest request) {
+        return sweetService.purchaseSweets(request.getItems())
+                .map(response -> ResponseEntity
+                        .status(response.isCompleted() ? HttpStatus.OK : HttpStatus.CONFLICT)
+                        .body(response));
+    }
+
+    @PostMapping("/{id}/restock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<Sweet> restockSweet(
+            @PathVariable String id,
+            @RequestParam("quantity") int quantity) {
+        return sweetService.restockSweet(id, quantity);
+    }
+}
@@ -0,0 +1,7 @@
+package com.sweetshop.reactive.sweets.repository;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveSweetRepository extends ReactiveMongoRepository<Sweet, String>, ReactiveSweetRepositoryCustom {
+}
@@ -0,0 +1,46 @@
+package com.sweetshop.reactive.sweets.repository;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive versions of the conditional stock updates and combined search of {@code SweetRepositoryCustom}.
+ */
+public interface ReactiveSweetRepositoryCustom {
+
+    /**
+     * Atomically decrements the stock when at least {@code amount} is available.
+     * Completes empty when the sweet does not exist or has too little stock.
+     */
+    Mono<Sweet> decrementQuantity(String id, int amount);
+
+    /**
+     * Atomically increments the stock, treating a missing quantity as zero.
+     * Completes empty when the sweet does not exist.
+     */
+    Mono<Sweet> incrementQuantity(String id, int amount);
+
+    /**
+     * Replaces the editable fields and bumps the version while it still equals {@code expectedVersion}
+     * (any version when null). Completes empty when the sweet does not exist or the version moved on.
+     */
+    Mono<Sweet> updateDetails(String id, Sweet changes, Long expectedVersion);
+
+    /**
+     * Decrements every sweet in one transaction, or none of them. Completes empty when any sweet
+     * is missing or short of stock.
+     */
+    Mono<List<Sweet>> decrementQuantities(Map<String, Integer> amountsById);
+
+    Flux<Sweet> search(SweetSearchCriteria criteria);
+
+    Flux<Sweet> findPage(SweetSearchCriteria criteria, String afterId, int limit);
+
+    Flux<Sweet> streamAll(Instant updatedSince);
+}
@@ -0,0 +1,134 @@
+package com.sweetshop.reactive.sweets.repository;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class ReactiveSweetRepositoryCustomImpl implements ReactiveSweetRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final int EXPORT_BATCH_SIZE = 1000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveSweetRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate,
+                                             ReactiveMongoTransactionManager transactionManager) {
+        this.mongoTemplate = mongoTemplate;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    @Override
+    public Mono<Sweet> decrementQuantity(String id, int amount) {
+        Query query = new Query(Criteria.where("id").is(id).and("quantity").gte(amount));
+        Update update = new Update().inc("quantity", -amount).inc("version", 1).set("updatedAt", new Date());
+        return mongoTemplate.findAndModify(query, update, RETURN_NEW, Sweet.class);
+    }
+
+    @Override
+    public Mono<Sweet> incrementQuantity(String id, int amount) {
+        Query query = new Query(Criteria.where("id").is(id));
+        // $inc rejects a null quantity, so treat a missing stock level as zero
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("quantity").toValue(ArithmeticOperators.Add
+                        .valueOf(ConditionalOperators.ifNull("quantity").then(0))
+                        .add(amount))
+                .set("version").toValue(ArithmeticOperators.Add
+                        .valueOf(ConditionalOperators.ifNull("version").then(0))
+                        .add(1))
+                .set("updatedAt").toValue(new Date());
+        return mongoTemplate.findAndModify(query, update, RETURN_NEW, Sweet.class);
+    }
+
+    @Override
+    public Mono<Sweet> updateDetails(String id, Sweet changes, Long expectedVersion) {
+        Criteria criteria = Criteria.where("id").is(id);
+        if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        Update update = new Update()
+                .set("name", changes.getName())
+                .set("category", changes.getCategory())
+                .set("price", changes.getPrice())
+                .set("quantity", changes.getQuantity())
+                .inc("version", 1)
+                .set("updatedAt", new Date());
+        return mongoTemplate.findAndModify(new Query(criteria), update, RETURN_NEW, Sweet.class);
+    }
+
+    @Override
+    public Mono<List<Sweet>> decrementQuantities(Map<String, Integer> amountsById) {
+        Mono<List<Sweet>> batch = Mono.defer(() -> {
+            ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Sweet.class);
+            amountsById.forEach((id, amount) -> bulk.updateOne(
+                    new Query(Criteria.where("id").is(id).and("quantity").gte(amount)),
+                    new Update().inc("quantity", -amount).inc("version", 1).set("updatedAt", new Date())));
+            return bulk.execute();
+        }).flatMap(result -> {
+            if (result.getModifiedCount() != amountsById.size()) {
+                // An error, not an empty completion, is what makes the operator roll back
+                return Mono.error(new IncompleteBatchException());
+            }
+            return mongoTemplate.find(new Query(Criteria.where("id").in(amountsById.keySet())), Sweet.class)
+                    .collectList();
+        });
+
+        return transactionalOperator.transactional(batch)
+                .onErrorResume(IncompleteBatchException.class, ex -> Mono.empty());
+    }
+
+    @Override
+    public Flux<Sweet> search(SweetSearchCriteria criteria) {
+        return mongoTemplate.find(criteria.toQuery(), Sweet.class);
+    }
+
+    @Override
+    public Flux<Sweet> findPage(SweetSearchCriteria criteria, String afterId, int limit) {
+        Query query = criteria.toQuery()
+                .with(Sort.by(Sort.Direction.ASC, "id"))
+                .limit(limit);
+        if (afterId != null) {
+            Object lastId = ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId;
+            query.addCriteria(Criteria.where("id").gt(lastId));
+        }
+        return mongoTemplate.find(query, Sweet.class);
+    }
+
+    @Override
+    public Flux<Sweet> streamAll(Instant updatedSince) {
+        // The driver requests batches as the subscriber demands them, so a slow client throttles the cursor
+        Query query = new Query().cursorBatchSize(EXPORT_BATCH_SIZE);
+        if (updatedSince != null) {
+            query.addCriteria(Criteria.where("updatedAt").gte(updatedSince))
+                    .with(Sort.by(Sort.Direction.ASC, "updatedAt"));
+        }
+        return mongoTemplate.find(query, Sweet.class);
+    }
+
+    private static final class IncompleteBatchException extends RuntimeException {
+
+        private IncompleteBatchException() {
+            super(null, null, false, false);
+        }
+    }
+}
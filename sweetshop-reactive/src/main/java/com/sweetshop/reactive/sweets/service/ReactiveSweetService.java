@@ -0,0 +1,176 @@
+package com.sweetshop.reactive.sweets.service;
+
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.PurchaseLine;
+import com.sweetshop.backend.sweets.dto.PurchaseLineResult;
+import com.sweetshop.backend.sweets.dto.PurchaseLineStatus;
+import com.sweetshop.backend.sweets.dto.SweetPage;
+import com.sweetshop.backend.sweets.exception.InsufficientStockException;
+import com.sweetshop.backend.sweets.exception.InvalidQuantityException;
+import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.exception.SweetVersionConflictException;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import com.sweetshop.backend.sweets.service.PageCursor;
+import com.sweetshop.backend.sweets.service.SweetService;
+import com.sweetshop.reactive.sweets.repository.ReactiveSweetRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link SweetService} with the same validation rules and error messages.
+ * List and search results are returned as {@link Flux}es straight from the Mongo cursor.
+ */
+@Service
+public class ReactiveSweetService {
+
+    private final ReactiveSweetRepository sweetRepository;
+
+    public ReactiveSweetService(ReactiveSweetRepository sweetRepository) {
+        this.sweetRepository = sweetRepository;
+    }
+
+    public Mono<Sweet> createSweet(Sweet sweet) {
+        sweet.setId(null);
+        sweet.setVersion(null);
+        return sweetRepository.save(sweet);
+    }
+
+    public Flux<Sweet> getAllSweets() {
+        return sweetRepository.findAll();
+    }
+
+    public Mono<Sweet> getSweet(String id) {
+        return sweetRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new SweetNotFoundException("Sweet not found: " + id)));
+    }
+
+    public Flux<Sweet> exportSweets(Instant updatedSince) {
+        return sweetRepository.streamAll(updatedSince);
+    }
+
+    public Flux<Sweet> searchSweets(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        return sweetRepository.search(new SweetSearchCriteria(name, category, minPrice, maxPrice));
+    }
+
+    public Mono<SweetPage> getSweetsPage(SweetSearchCriteria criteria, String cursor, int limit) {
+        if (limit <= 0 || limit > SweetService.MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException("Limit must be between 1 and " + SweetService.MAX_PAGE_SIZE));
+        }
+
+        String afterId;
+        try {
+            afterId = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(ex);
+        }
+
+        // One extra document tells us whether another page exists without a count query
+        return sweetRepository.findPage(criteria, afterId, limit + 1)
+                .collectList()
+                .map(found -> {
+                    if (found.size() <= limit) {
+                        return new SweetPage(found, null);
+                    }
+                    List<Sweet> items = List.copyOf(found.subList(0, limit));
+                    return new SweetPage(items, PageCursor.encode(items.get(limit - 1).getId()));
+                });
+    }
+
+    // A version in the body makes the update conditional, as in SweetService
+    public Mono<Sweet> updateSweet(String id, Sweet updated) {
+        return sweetRepository.updateDetails(id, updated, updated.getVersion())
+                .switchIfEmpty(Mono.defer(() -> sweetRepository.existsById(id)
+                        .flatMap(exists -> Mono.<Sweet>error(exists
+                                ? new SweetVersionConflictException(
+                                        "Sweet " + id + " was modified by someone else, reload it and retry")
+                                : new SweetNotFoundException("Sweet not found: " + id)))));
+    }
+
+    public Mono<Void> deleteSweet(String id) {
+        return sweetRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? sweetRepository.deleteById(id)
+                        : Mono.error(new SweetNotFoundException("Sweet not found: " + id)));
+    }
+
+    public Mono<Sweet> purchaseSweet(String id, int quantityToPurchase) {
+        if (quantityToPurchase <= 0) {
+            return Mono.error(new InvalidQuantityException("Quantity to purchase must be positive"));
+        }
+        return sweetRepository.decrementQuantity(id, quantityToPurchase)
+                .switchIfEmpty(Mono.defer(() -> purchaseRejection(id)));
+    }
+
+    public Mono<BatchPurchaseResponse> purchaseSweets(List<PurchaseLine> lines) {
+        // Lines for the same sweet are merged so the stock guard sees the whole basket
+        Map<String, Integer> amountsById = new LinkedHashMap<>();
+        for (PurchaseLine line : lines) {
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                return Mono.error(new InvalidQuantityException("Quantity to purchase must be positive"));
+            }
+            amountsById.merge(line.getSweetId(), line.getQuantity(), Integer::sum);
+        }
+
+        return sweetRepository.decrementQuantities(amountsById)
+                .map(updated -> completedBatch(lines, updated))
+                .switchIfEmpty(Mono.defer(() -> rejectedBatch(lines, amountsById)));
+    }
+
+    private static BatchPurchaseResponse completedBatch(List<PurchaseLine> lines, List<Sweet> updated) {
+        Map<String, Sweet> byId = updated.stream().collect(Collectors.toMap(Sweet::getId, Function.identity()));
+        List<PurchaseLineResult> results = lines.stream()
+                .map(line -> new PurchaseLineResult(line.getSweetId(), line.getQuantity(),
+                        PurchaseLineStatus.PURCHASED, byId.get(line.getSweetId()).getQuantity()))
+                .toList();
+        return new BatchPurchaseResponse(true, results, updated);
+    }
+
+    // Nothing was written; report which lines blocked the basket against current stock.
+    private Mono<BatchPurchaseResponse> rejectedBatch(List<PurchaseLine> lines, Map<String, Integer> amountsById) {
+        return sweetRepository.findAllById(amountsById.keySet())
+                .collectMap(Sweet::getId)
+                .map(current -> {
+                    List<PurchaseLineResult> results = lines.stream()
+                            .map(line -> {
+                                Sweet sweet = current.get(line.getSweetId());
+                                if (sweet == null) {
+                                    return new PurchaseLineResult(line.getSweetId(), line.getQuantity(),
+                                            PurchaseLineStatus.NOT_FOUND, null);
+                                }
+                                int available = sweet.getQuantity() == null ? 0 : sweet.getQuantity();
+                                PurchaseLineStatus status = available < amountsById.get(line.getSweetId())
+                                        ? PurchaseLineStatus.INSUFFICIENT_STOCK
+                                        : PurchaseLineStatus.NOT_APPLIED;
+                                return new PurchaseLineResult(line.getSweetId(), line.getQuantity(), status, available);
+                            })
+                            .toList();
+                    return new BatchPurchaseResponse(false, results, List.copyOf(current.values()));
+                });
+    }
+
+    public Mono<Sweet> restockSweet(String id, int quantityToAdd) {
+        if (quantityToAdd <= 0) {
+            return Mono.error(new InvalidQuantityException("Quantity to restock must be positive"));
+        }
+        return sweetRepository.incrementQuantity(id, quantityToAdd)
+                .switchIfEmpty(Mono.error(() -> new SweetNotFoundException("Sweet not found: " + id)));
+    }
+
+    // The conditional update only tells us that nothing matched; find out which guard failed.
+    private Mono<Sweet> purchaseRejection(String id) {
+        return sweetRepository.existsById(id)
+                .flatMap(exists -> Mono.<Sweet>error(exists
+                        ? new InsufficientStockException("Insufficient stock for sweet: " + id)
+                        : new SweetNotFoundException("Sweet not found: " + id)));
+    }
+}
@@ -0,0 +1,13 @@
+package com.sweetshop.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class SweetshopReactiveApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
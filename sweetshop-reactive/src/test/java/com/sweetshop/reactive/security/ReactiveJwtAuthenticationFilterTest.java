@@ -0,0 +1,64 @@
+package com.sweetshop.reactive.security;
+
+import com.sweetshop.backend.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveJwtAuthenticationFilterTest {
+
+    private final JwtService jwtService = new JwtService(
+            "test-secret-key-that-is-long-enough-for-hmac-sha-256-signing", 60_000, 100);
+    private final ReactiveJwtAuthenticationFilter filter = new ReactiveJwtAuthenticationFilter(jwtService);
+
+    @Test
+    void filter_withValidToken_authenticatesDownstream() {
+        // given
+        String token = jwtService.generateToken("admin@sweetshop.com", "ADMIN");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/sweets")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+        AtomicReference<Optional<Authentication>> seen = new AtomicReference<>();
+
+        // when
+        filter.filter(exchange, capturing(seen)).block();
+
+        // then
+        assertThat(seen.get()).isPresent();
+        assertThat(seen.get().get().getName()).isEqualTo("admin@sweetshop.com");
+        assertThat(seen.get().get().getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void filter_withInvalidToken_continuesUnauthenticated() {
+        // given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/sweets")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer not-a-jwt"));
+        AtomicReference<Optional<Authentication>> seen = new AtomicReference<>();
+
+        // when
+        filter.filter(exchange, capturing(seen)).block();
+
+        // then
+        assertThat(seen.get()).isEmpty();
+    }
+
+    private static WebFilterChain capturing(AtomicReference<Optional<Authentication>> seen) {
+        return exchange -> ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(seen::set)
+                .then(Mono.empty());
+    }
+}
@@ -0,0 +1,143 @@
+package com.sweetshop.reactive.sweets;
+
+import com.sweetshop.backend.sweets.dto.SweetPage;
+import com.sweetshop.backend.sweets.exception.InsufficientStockException;
+import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.reactive.sweets.controller.ReactiveSweetController;
+import com.sweetshop.reactive.sweets.service.ReactiveSweetService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(controllers = ReactiveSweetController.class,
+        excludeAutoConfiguration = {
+                ReactiveSecurityAutoConfiguration.class,
+                ReactiveUserDetailsServiceAutoConfiguration.class
+        },
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {
+                com.sweetshop.reactive.config.ReactiveSecurityConfig.class,
+                com.sweetshop.reactive.config.ReactiveMongoConfig.class
+        }))
+class ReactiveSweetControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveSweetService sweetService;
+
+    @Test
+    void getAllSweets_shouldReturnJsonArray() {
+        // given
+        when(sweetService.getAllSweets()).thenReturn(Flux.just(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100),
+                new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 50)));
+
+        // when + then
+        webTestClient.get().uri("/api/sweets")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Chocolate")
+                .jsonPath("$[1].name").isEqualTo("Lollipop");
+    }
+
+    @Test
+    void getAllSweets_withNdjson_shouldStreamOneDocumentPerLine() {
+        // given
+        when(sweetService.getAllSweets()).thenReturn(Flux.just(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100),
+                new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 50)));
+
+        // when
+        List<Sweet> streamed = webTestClient.get().uri("/api/sweets")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Sweet.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        // then
+        assertThat(streamed).extracting(Sweet::getName).containsExactly("Chocolate", "Lollipop");
+    }
+
+    @Test
+    void getAllSweets_withLimit_shouldReturnPage() {
+        // given
+        SweetPage page = new SweetPage(List.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)), "next-token");
+        when(sweetService.getSweetsPage(any(), isNull(), eq(1))).thenReturn(Mono.just(page));
+
+        // when + then
+        webTestClient.get().uri("/api/sweets?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].name").isEqualTo("Chocolate")
+                .jsonPath("$.next").isEqualTo("next-token");
+        verify(sweetService, never()).getAllSweets();
+    }
+
+    @Test
+    void getSweet_whenMissing_shouldReturn404() {
+        // given
+        when(sweetService.getSweet("missing"))
+                .thenReturn(Mono.error(new SweetNotFoundException("Sweet not found: missing")));
+
+        // when + then
+        webTestClient.get().uri("/api/sweets/missing")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("Sweet not found: missing");
+    }
+
+    @Test
+    void purchaseSweet_withInsufficientStock_shouldReturnConflict() {
+        // given
+        when(sweetService.purchaseSweet("1", 5))
+                .thenReturn(Mono.error(new InsufficientStockException("Insufficient stock for sweet: 1")));
+
+        // when + then
+        webTestClient.post().uri("/api/sweets/1/purchase?quantity=5")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(String.class).isEqualTo("Insufficient stock for sweet: 1");
+    }
+
+    @Test
+    void createSweet_withMissingName_shouldReturn400() {
+        // given
+        Sweet invalid = new Sweet(null, "", "Candy", new BigDecimal("1.00"), 1);
+
+        // when + then
+        webTestClient.post().uri("/api/sweets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(invalid)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Name is required");
+        verify(sweetService, never()).createSweet(any());
+    }
+}
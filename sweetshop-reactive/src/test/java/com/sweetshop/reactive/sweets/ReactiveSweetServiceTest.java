@@ -0,0 +1,113 @@
+package com.sweetshop.reactive.sweets;
+
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.PurchaseLine;
+import com.sweetshop.backend.sweets.dto.PurchaseLineStatus;
+import com.sweetshop.backend.sweets.exception.InsufficientStockException;
+import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import com.sweetshop.reactive.sweets.repository.ReactiveSweetRepository;
+import com.sweetshop.reactive.sweets.service.ReactiveSweetService;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveSweetServiceTest {
+
+    private final ReactiveSweetRepository sweetRepository = mock(ReactiveSweetRepository.class);
+    private final ReactiveSweetService sweetService = new ReactiveSweetService(sweetRepository);
+
+    @Test
+    void purchaseSweet_withEnoughStock_returnsUpdatedSweet() {
+        // given
+        Sweet updated = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 7);
+        when(sweetRepository.decrementQuantity("1", 3)).thenReturn(Mono.just(updated));
+
+        // when + then
+        StepVerifier.create(sweetService.purchaseSweet("1", 3))
+                .expectNext(updated)
+                .verifyComplete();
+        verify(sweetRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    void purchaseSweet_withInsufficientStock_failsWithInsufficientStock() {
+        // given
+        when(sweetRepository.decrementQuantity("1", 30)).thenReturn(Mono.empty());
+        when(sweetRepository.existsById("1")).thenReturn(Mono.just(true));
+
+        // when + then
+        StepVerifier.create(sweetService.purchaseSweet("1", 30))
+                .expectError(InsufficientStockException.class)
+                .verify();
+    }
+
+    @Test
+    void purchaseSweet_whenMissing_failsWithNotFound() {
+        // given
+        when(sweetRepository.decrementQuantity("missing", 1)).thenReturn(Mono.empty());
+        when(sweetRepository.existsById("missing")).thenReturn(Mono.just(false));
+
+        // when + then
+        StepVerifier.create(sweetService.purchaseSweet("missing", 1))
+                .expectError(SweetNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void purchaseSweet_withNonPositiveQuantity_failsWithoutTouchingRepository() {
+        // when + then
+        StepVerifier.create(sweetService.purchaseSweet("1", 0))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(sweetRepository, never()).decrementQuantity(anyString(), anyInt());
+    }
+
+    @Test
+    void purchaseSweets_whenBatchIsRejected_reportsBlockingLines() {
+        // given
+        List<PurchaseLine> lines = List.of(new PurchaseLine("1", 2), new PurchaseLine("2", 9));
+        when(sweetRepository.decrementQuantities(Map.of("1", 2, "2", 9))).thenReturn(Mono.empty());
+        when(sweetRepository.findAllById(any(Iterable.class))).thenReturn(Flux.just(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 10),
+                new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 4)));
+
+        // when
+        BatchPurchaseResponse response = sweetService.purchaseSweets(lines).block();
+
+        // then
+        assertThat(response.isCompleted()).isFalse();
+        assertThat(response.getLines()).extracting("status")
+                .containsExactly(PurchaseLineStatus.NOT_APPLIED, PurchaseLineStatus.INSUFFICIENT_STOCK);
+    }
+
+    @Test
+    void getSweetsPage_withMoreResults_returnsCursor() {
+        // given
+        SweetSearchCriteria all = new SweetSearchCriteria(null, null, null, null);
+        when(sweetRepository.findPage(eq(all), eq(null), eq(3))).thenReturn(Flux.just(
+                new Sweet("1", "A", "Candy", BigDecimal.ONE, 1),
+                new Sweet("2", "B", "Candy", BigDecimal.ONE, 1),
+                new Sweet("3", "C", "Candy", BigDecimal.ONE, 1)));
+
+        // when + then
+        StepVerifier.create(sweetService.getSweetsPage(all, null, 2))
+                .assertNext(page -> {
+                    assertThat(page.getItems()).extracting(Sweet::getId).containsExactly("1", "2");
+                    assertThat(page.getNext()).isNotNull();
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,17 @@
+package com.sweetshop.backend.auth.exception;
+
+/**
+ * Unknown email or wrong password.
+ */
+public class InvalidCredentialsException extends IllegalArgumentException {
+
+    public InvalidCredentialsException() {
+        super("Invalid credentials");
+    }
+
+    // Stackless like StacklessException, which it cannot extend: callers expect an IllegalArgumentException
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
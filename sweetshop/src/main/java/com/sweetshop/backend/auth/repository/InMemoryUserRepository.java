@@ -0,0 +1,48 @@
+package com.sweetshop.backend.auth.repository;
+
+import com.sweetshop.backend.auth.model.User;
+import com.sweetshop.backend.storage.EntityMapping;
+import com.sweetshop.backend.storage.InMemoryMongoRepository;
+import com.sweetshop.backend.storage.InMemoryStorage;
+import com.sweetshop.backend.storage.SecondaryIndex;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * {@link UserRepository} served from process memory for the {@code inmemory} profile, with an index on email.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryUserRepository extends InMemoryMongoRepository<User> implements UserRepository {
+
+    private final SecondaryIndex<User, String> emailIndex;
+
+    public InMemoryUserRepository(InMemoryStorage storage) {
+        super(storage.open("users", EntityMapping.of(User.class, User::getId, User::setId,
+                user -> new User(user.getId(), user.getEmail(), user.getPassword(), user.getRole()))));
+        this.emailIndex = store.addIndex("email", User::getEmail);
+        store.recover();
+    }
+
+    @Override
+    protected String idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return findByEmail(email).isPresent();
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return store.getAll(emailIndex.equalTo(email)).stream()
+                .filter(user -> email.equals(user.getEmail()))
+                .findFirst();
+    }
+}
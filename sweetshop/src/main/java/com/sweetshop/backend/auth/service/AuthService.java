@@ -3,9 +3,11 @@ package com.sweetshop.backend.auth.service;
 import com.sweetshop.backend.auth.dto.LoginRequest;
 import com.sweetshop.backend.auth.dto.LoginResponse;
 import com.sweetshop.backend.auth.dto.RegisterRequest;
+import com.sweetshop.backend.auth.exception.InvalidCredentialsException;
 import com.sweetshop.backend.auth.model.User;
 import com.sweetshop.backend.auth.repository.UserRepository;
 import com.sweetshop.backend.security.JwtService;
+import com.sweetshop.backend.security.PasswordHashingBusyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -40,8 +42,9 @@ public class AuthService {
         User user = findUserByEmailOrThrow(request.getEmail());
 
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            throw new IllegalArgumentException("Invalid credentials");
+            throw new InvalidCredentialsException();
         }
+        upgradePasswordHashIfNeeded(user, request.getPassword());
 
         String role = user.getRole() != null ? user.getRole() : "USER";
         String token = jwtService.generateToken(user.getEmail(), role);
@@ -49,9 +52,22 @@ public class AuthService {
         return new LoginResponse(user.getEmail(), token);
     }
 
+    // Re-hashes with the current work factor while the plain password is at hand
+    private void upgradePasswordHashIfNeeded(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordEncoder.encode(rawPassword));
+            userRepository.save(user);
+        } catch (PasswordHashingBusyException ex) {
+            // Not worth failing a valid login over; the upgrade is retried on the next one
+        }
+    }
+
     private User findUserByEmailOrThrow(String email) {
         Optional<User> userOpt = userRepository.findByEmail(email);
         return userOpt.orElseThrow(
-                () -> new IllegalArgumentException("Invalid credentials"));
+                InvalidCredentialsException::new);
     }
 }
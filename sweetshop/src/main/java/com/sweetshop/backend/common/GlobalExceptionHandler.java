@@ -1,16 +1,20 @@
 package com.sweetshop.backend.common;
 
+import com.sweetshop.backend.auth.exception.InvalidCredentialsException;
+import com.sweetshop.backend.security.PasswordHashingBusyException;
 import com.sweetshop.backend.sweets.exception.InsufficientStockException;
 import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.exception.SweetVersionConflictException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -22,36 +26,65 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(InsufficientStockException.class)
     public ResponseEntity<String> handleInsufficientStock(InsufficientStockException ex) {
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(SweetVersionConflictException.class)
+    public ResponseEntity<String> handleVersionConflict(SweetVersionConflictException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<String> handlePasswordHashingBusy(PasswordHashingBusyException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidCredentialsException.class)
+    public ResponseEntity<String> handleInvalidCredentials(InvalidCredentialsException ex) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
-        if (ex.getMessage() != null && ex.getMessage().contains("Invalid credentials")) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
-        }
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<String> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getAllErrors().forEach((error) -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        
-        // Build a user-friendly error message
-        StringBuilder errorMsg = new StringBuilder();
-        errors.forEach((field, message) -> {
-            if (errorMsg.length() > 0) {
-                errorMsg.append("; ");
+        // One message per field, joined in the order the validator reported them
+        List<ObjectError> errors = ex.getBindingResult().getAllErrors();
+        if (errors.size() == 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors.get(0).getDefaultMessage());
+        }
+
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < errors.size(); i++) {
+            if (reportedLater(errors, i)) {
+                continue;
+            }
+            if (message.length() > 0) {
+                message.append("; ");
             }
-            errorMsg.append(message);
-        });
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMsg.toString());
+            message.append(errors.get(i).getDefaultMessage());
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(message.toString());
+    }
+
+    // Keeps the last message per field, as before; validation errors are few, so a scan beats a map
+    private static boolean reportedLater(List<ObjectError> errors, int index) {
+        String field = fieldOf(errors.get(index));
+        for (int j = index + 1; j < errors.size(); j++) {
+            if (field.equals(fieldOf(errors.get(j)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String fieldOf(ObjectError error) {
+        return error instanceof FieldError fieldError ? fieldError.getField() : error.getObjectName();
     }
 }
 
@@ -0,0 +1,13 @@
+package com.sweetshop.backend.common;
+
+/**
+ * Base for rejections that are an expected outcome of normal traffic rather than faults: a missing sweet, a
+ * sell-out, a conflicting edit, a shed request. They are turned straight into a status code and never logged
+ * with a trace, so they skip stack trace capture, which is most of the cost of throwing an exception.
+ */
+public abstract class StacklessException extends RuntimeException {
+
+    protected StacklessException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,43 @@
+package com.sweetshop.backend.config;
+
+import com.sweetshop.backend.ratelimit.MongoLatencyMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableMongoAuditing
+@Profile("!inmemory")
+public class MongoConfig {
+
+    // Multi-document transactions need MongoDB running as a replica set (a single-node one is enough)
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+
+    // The pool, not the request thread count, bounds concurrent Mongo work; on virtual threads a short wait
+    // makes an overloaded node fail fast instead of parking thousands of requests for the driver default of 2 min
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${sweetshop.mongo.pool.max-size:100}") int maxSize,
+            @Value("${sweetshop.mongo.pool.max-wait:2m}") Duration maxWait) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxSize)
+                .maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    // Command latency drives load shedding of low-priority requests
+    @Bean
+    public MongoClientSettingsBuilderCustomizer latencyMonitorCustomizer(MongoLatencyMonitor latencyMonitor) {
+        return settings -> settings.addCommandListener(latencyMonitor);
+    }
+}
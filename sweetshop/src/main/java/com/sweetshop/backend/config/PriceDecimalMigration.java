@@ -0,0 +1,131 @@
+package com.sweetshop.backend.config;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites sweet prices that older versions stored as strings into Decimal128, in batches.
+ * <p>
+ * Every batch selects the documents whose price is still a string, so an interrupted run resumes where it
+ * stopped. Each write is conditional on the old string value, so a price changed by the application
+ * meanwhile is never overwritten. Once no string prices are left, a marker in {@code migrations} stops later
+ * startups from scanning again, and the superseded single-field price index is dropped.
+ */
+@Component
+@Profile("!inmemory")
+public class PriceDecimalMigration {
+
+    static final String MIGRATIONS_COLLECTION = "migrations";
+    static final String MIGRATION_ID = "sweets-price-decimal128";
+    private static final String LEGACY_PRICE_INDEX = "price";
+
+    private static final Logger log = LoggerFactory.getLogger(PriceDecimalMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final TaskExecutor taskExecutor;
+    private final int batchSize;
+
+    public PriceDecimalMigration(MongoTemplate mongoTemplate,
+                                 @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                 @Value("${sweetshop.migration.price.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskExecutor = taskExecutor;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        taskExecutor.execute(() -> {
+            try {
+                migrate();
+            } catch (RuntimeException ex) {
+                log.warn("Price migration stopped, it resumes on the next start: {}", ex.getMessage());
+            }
+        });
+    }
+
+    void migrate() {
+        MongoCollection<Document> migrations = mongoTemplate.getCollection(MIGRATIONS_COLLECTION);
+        if (migrations.find(Filters.eq("_id", MIGRATION_ID)).first() != null) {
+            return;
+        }
+
+        MongoCollection<Document> sweets = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Sweet.class));
+        Set<Object> unparseable = new HashSet<>();
+        long converted = 0;
+        while (true) {
+            List<Document> batch = sweets.find(Filters.and(
+                            Filters.type("price", BsonType.STRING),
+                            Filters.nin("_id", unparseable)))
+                    .projection(Projections.include("price"))
+                    .limit(batchSize)
+                    .into(new ArrayList<>());
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+            for (Document sweet : batch) {
+                String price = sweet.getString("price");
+                try {
+                    writes.add(new UpdateOneModel<>(
+                            Filters.and(Filters.eq("_id", sweet.get("_id")), Filters.eq("price", price)),
+                            Updates.set("price", new Decimal128(new BigDecimal(price.trim())))));
+                } catch (IllegalArgumentException ex) {
+                    unparseable.add(sweet.get("_id"));
+                    log.warn("Sweet {} keeps its unparseable price '{}'", sweet.get("_id"), price);
+                }
+            }
+            if (!writes.isEmpty()) {
+                converted += sweets.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getModifiedCount();
+            }
+        }
+
+        if (!unparseable.isEmpty()) {
+            log.warn("Converted {} sweet prices; {} could not be parsed and are retried on the next start",
+                    converted, unparseable.size());
+            return;
+        }
+        dropLegacyPriceIndex();
+        migrations.replaceOne(Filters.eq("_id", MIGRATION_ID),
+                new Document("_id", MIGRATION_ID).append("completedAt", new Date()).append("converted", converted),
+                new ReplaceOptions().upsert(true));
+        log.info("Converted {} sweet prices to Decimal128", converted);
+    }
+
+    // Replaced by the price_name compound index declared on Sweet, which serves the same range scans
+    private void dropLegacyPriceIndex() {
+        boolean present = mongoTemplate.indexOps(Sweet.class).getIndexInfo().stream()
+                .anyMatch(index -> LEGACY_PRICE_INDEX.equals(index.getName()));
+        if (present) {
+            mongoTemplate.indexOps(Sweet.class).dropIndex(LEGACY_PRICE_INDEX);
+        }
+    }
+}
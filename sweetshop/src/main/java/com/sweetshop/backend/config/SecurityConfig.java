@@ -1,8 +1,18 @@
 package com.sweetshop.backend.config;
 
+import com.sweetshop.backend.idempotency.IdempotencyFilter;
+import com.sweetshop.backend.idempotency.IdempotencyService;
+import com.sweetshop.backend.ratelimit.LoadShedder;
+import com.sweetshop.backend.ratelimit.RateLimitFilter;
+import com.sweetshop.backend.ratelimit.ShedExemption;
+import com.sweetshop.backend.ratelimit.RateLimiter;
+import com.sweetshop.backend.security.BoundedPasswordEncoder;
 import com.sweetshop.backend.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -12,11 +22,13 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -32,12 +44,28 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${sweetshop.security.bcrypt.strength:10}") int strength,
+            @Value("${sweetshop.security.bcrypt.threads:0}") int threads,
+            @Value("${sweetshop.security.bcrypt.queue-capacity:64}") int queueCapacity,
+            @Value("${sweetshop.security.bcrypt.timeout:5s}") Duration timeout,
+            MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, timeout,
+                meterRegistry);
     }
 
+    // Rate limiting runs once the JWT is verified, so budgets can be per user. The idempotency filter runs
+    // after authorization, so keys are scoped to a user and rejected requests never claim one
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            RateLimiter rateLimiter,
+            LoadShedder loadShedder,
+            ShedExemption shedExemption,
+            IdempotencyService idempotencyService,
+            @Value("${sweetshop.idempotency.wait-timeout:10s}") Duration idempotencyWaitTimeout,
+            MeterRegistry meterRegistry) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -45,10 +73,17 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // Metrics reveal sales volumes and auth timings; scrapers send an admin bearer token
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/api/sweets/**").authenticated()
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(new RateLimitFilter(rateLimiter, loadShedder, shedExemption, meterRegistry),
+                    JwtAuthenticationFilter.class)
+            .addFilterAfter(new IdempotencyFilter(idempotencyService, idempotencyWaitTimeout, meterRegistry),
+                    AuthorizationFilter.class);
         
         return http.build();
     }
@@ -59,6 +94,7 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(List.of("http://localhost:3000", "http://localhost:5173"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of("ETag", IdempotencyFilter.REPLAYED, HttpHeaders.RETRY_AFTER));
         configuration.setAllowCredentials(true);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
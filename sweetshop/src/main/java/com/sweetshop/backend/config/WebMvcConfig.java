@@ -0,0 +1,19 @@
+package com.sweetshop.backend.config;
+
+import com.sweetshop.backend.sweets.protobuf.SweetProtobufHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    // Appended after JSON (and the CBOR and Smile converters Spring adds for their Jackson modules), so protobuf
+    // is only chosen when a client asks for it and JSON stays the default for Accept: */*
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new SweetProtobufHttpMessageConverter());
+    }
+}
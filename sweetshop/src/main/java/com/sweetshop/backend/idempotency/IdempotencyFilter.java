@@ -0,0 +1,275 @@
+package com.sweetshop.backend.idempotency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes {@code POST}s that carry an {@code Idempotency-Key} header safe to retry.
+ * <p>
+ * Keys are scoped to the authenticated user. The first request with a key is executed and its response
+ * stored; a later request with the same key and the same method, path and body gets that response back
+ * (marked {@code Idempotent-Replayed: true}) without running again, while one with a different request is
+ * rejected with 422. A duplicate that arrives while the first is still running waits for it, up to
+ * {@code waitTimeout}, and gets 409 if it is still running after that. Responses with a 5xx status are not
+ * stored, so the request can be retried.
+ * <p>
+ * The body is hashed while the handler streams it, never held in memory, so large uploads such as a catalog
+ * import can be made idempotent too.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final IdempotencyService idempotencyService;
+    private final long waitTimeoutNanos;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.idempotencyService = idempotencyService;
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+        Principal principal = request.getUserPrincipal();
+        if (principal == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        FingerprintingRequest fingerprinted = new FingerprintingRequest(request);
+        String key = principal.getName() + ":" + idempotencyKey;
+        long deadline = System.nanoTime() + waitTimeoutNanos;
+
+        while (true) {
+            Optional<IdempotencyRecord> done = idempotencyService.findCompleted(key);
+            if (done.isPresent()) {
+                replay(done.get(), fingerprinted.fingerprint(), response);
+                return;
+            }
+
+            CompletableFuture<IdempotencyRecord> running = idempotencyService.startOrJoin(key);
+            if (running != null) {
+                awaitQuietly(running, deadline);
+            } else {
+                Optional<IdempotencyRecord> claimed = idempotencyService.claim(key);
+                if (claimed.isPresent()) {
+                    execute(fingerprinted, response, filterChain, claimed.get());
+                    return;
+                }
+                // Completed before this instance cached it, or still running on another instance
+                Optional<IdempotencyRecord> shared = idempotencyService.findShared(key);
+                if (shared.isPresent() && shared.get().isCompleted()) {
+                    replay(shared.get(), fingerprinted.fingerprint(), response);
+                    return;
+                }
+                pause(deadline);
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                count("in_progress");
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                reject(response, HttpStatus.CONFLICT, "A request with this " + IDEMPOTENCY_KEY + " is still in progress");
+                return;
+            }
+        }
+    }
+
+    private void execute(FingerprintingRequest request, HttpServletResponse response, FilterChain filterChain,
+                         IdempotencyRecord claimed) throws ServletException, IOException {
+        ContentCachingResponseWrapper recorder = new ContentCachingResponseWrapper(response);
+        IdempotencyRecord outcome = null;
+        try {
+            filterChain.doFilter(request, recorder);
+            if (recorder.getStatus() < 500) {
+                outcome = claimed.completed(request.fingerprint(), recorder.getStatus(), recorder.getContentType(),
+                        recorder.getContentAsByteArray());
+            }
+        } finally {
+            idempotencyService.finish(claimed.getKey(), outcome);
+            count("executed");
+            recorder.copyBodyToResponse();
+        }
+    }
+
+    private void replay(IdempotencyRecord record, String fingerprint, HttpServletResponse response) throws IOException {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            count("mismatch");
+            reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    IDEMPOTENCY_KEY + " was already used for a different request");
+            return;
+        }
+        count("replayed");
+        response.setStatus(record.getStatus());
+        response.setHeader(REPLAYED, "true");
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        if (record.getBody() != null) {
+            response.setContentLength(record.getBody().length);
+            response.getOutputStream().write(record.getBody());
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("sweetshop.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+
+    private static void awaitQuietly(CompletableFuture<IdempotencyRecord> running, long deadline) {
+        try {
+            running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            // Re-examined by the caller's loop
+        }
+    }
+
+    private static void pause(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, POLL_INTERVAL.toNanos()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Hashes the method, path, query and body of a request; the body as the handler reads it, and whatever it
+     * left unread when the fingerprint is asked for.
+     */
+    private static final class FingerprintingRequest extends HttpServletRequestWrapper {
+
+        private final MessageDigest digest;
+        private ServletInputStream body;
+        private String fingerprint;
+
+        private FingerprintingRequest(HttpServletRequest request) {
+            super(request);
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 is not available", ex);
+            }
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+        }
+
+        private String fingerprint() throws IOException {
+            if (fingerprint == null) {
+                getInputStream().transferTo(OutputStream.nullOutputStream());
+                fingerprint = HexFormat.of().formatHex(digest.digest());
+            }
+            return fingerprint;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body != null) {
+                return body;
+            }
+            ServletInputStream in = super.getInputStream();
+            body = new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.isFinished();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return in.isReady();
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    in.setReadListener(readListener);
+                }
+
+                @Override
+                public int read() throws IOException {
+                    int read = in.read();
+                    if (read >= 0) {
+                        digest.update((byte) read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = in.read(buffer, offset, length);
+                    if (read > 0) {
+                        digest.update(buffer, offset, read);
+                    }
+                    return read;
+                }
+            };
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
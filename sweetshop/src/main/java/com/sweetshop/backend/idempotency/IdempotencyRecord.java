@@ -0,0 +1,94 @@
+package com.sweetshop.backend.idempotency;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A request made under an {@code Idempotency-Key}: claimed while the first execution runs, then holding the
+ * response that duplicates are answered with until it expires.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String key;
+
+    private String fingerprint;
+
+    private boolean completed;
+
+    private int status;
+
+    private String contentType;
+
+    private byte[] body;
+
+    // MongoDB deletes the record shortly after this instant
+    @Indexed(name = "expiresAt", expireAfterSeconds = 0)
+    private Instant expiresAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public static IdempotencyRecord pending(String key, String fingerprint, Instant expiresAt) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.key = key;
+        record.fingerprint = fingerprint;
+        record.expiresAt = expiresAt;
+        return record;
+    }
+
+    // The fingerprint covers the request body, which is only read in full once the request has run
+    public IdempotencyRecord completed(String requestFingerprint, int status, String contentType, byte[] body) {
+        IdempotencyRecord record = pending(key, requestFingerprint, expiresAt);
+        record.completed = true;
+        record.status = status;
+        record.contentType = contentType;
+        record.body = body;
+        return record;
+    }
+
+    public IdempotencyRecord expiringAt(Instant expiresAt) {
+        IdempotencyRecord record = pending(key, fingerprint, expiresAt);
+        record.completed = completed;
+        record.status = status;
+        record.contentType = contentType;
+        record.body = body;
+        return record;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
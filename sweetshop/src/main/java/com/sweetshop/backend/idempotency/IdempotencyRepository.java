@@ -0,0 +1,27 @@
+package com.sweetshop.backend.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Shared store of idempotency records, so a duplicate is recognised whichever instance it reaches.
+ */
+public interface IdempotencyRepository {
+
+    /**
+     * Stores {@code pending} unless a live record with the same key exists. Returns whether the caller now owns
+     * the key and must execute the request.
+     */
+    boolean claim(IdempotencyRecord pending);
+
+    /**
+     * The live record for {@code key}, pending or completed.
+     */
+    Optional<IdempotencyRecord> find(String key);
+
+    void complete(IdempotencyRecord completed);
+
+    /**
+     * Drops a pending claim whose execution failed, so a retry runs the request again.
+     */
+    void release(String key);
+}
@@ -0,0 +1,119 @@
+package com.sweetshop.backend.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-tier idempotency store: completed responses are served from a bounded in-process cache, and the
+ * {@link IdempotencyRepository} behind it makes a key visible to every instance. Duplicates that arrive while
+ * the first execution is still running on this instance wait on it instead of asking the repository.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyRepository repository;
+    private final Duration ttl;
+    private final Duration pendingLease;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRepository repository,
+                              @Value("${sweetshop.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${sweetshop.idempotency.hot-size:10000}") long hotSize,
+                              @Value("${sweetshop.idempotency.pending-lease:2m}") Duration pendingLease) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.pendingLease = pendingLease;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(hotSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Completed response for {@code key} held by this instance, without a round trip to the repository.
+     */
+    public Optional<IdempotencyRecord> findCompleted(String key) {
+        return Optional.ofNullable(completed.getIfPresent(key));
+    }
+
+    /**
+     * Registers the caller as the local executor of {@code key} and returns null, or returns the execution
+     * already running here. That future completes with the stored response, or with null when the execution
+     * failed or was handed over to another instance.
+     */
+    public CompletableFuture<IdempotencyRecord> startOrJoin(String key) {
+        return inFlight.putIfAbsent(key, new CompletableFuture<>());
+    }
+
+    /**
+     * Claims {@code key} in the shared repository for the local executor registered by {@link #startOrJoin},
+     * returning the pending record to complete. When the key is already taken, e.g. by another instance, the
+     * local executor is withdrawn and the result is empty.
+     * <p>
+     * The claim is only a lease of {@code sweetshop.idempotency.pending-lease}: if its owner dies or cannot
+     * record the outcome, a retry takes the key over once the lease has run out. The response is kept for the
+     * full TTL once it is stored.
+     */
+    public Optional<IdempotencyRecord> claim(String key) {
+        IdempotencyRecord pending = IdempotencyRecord.pending(key, null, Instant.now().plus(pendingLease));
+        boolean claimed = false;
+        try {
+            claimed = repository.claim(pending);
+        } finally {
+            if (!claimed) {
+                leave(key, null);
+            }
+        }
+        return claimed ? Optional.of(pending) : Optional.empty();
+    }
+
+    /**
+     * Looks {@code key} up in the shared repository, remembering a completed response locally.
+     */
+    public Optional<IdempotencyRecord> findShared(String key) {
+        Optional<IdempotencyRecord> record = repository.find(key);
+        record.filter(IdempotencyRecord::isCompleted).ifPresent(found -> completed.put(key, found));
+        return record;
+    }
+
+    /**
+     * Ends the local execution of {@code key}: stores its response, or releases the claim when there is none
+     * worth replaying, and wakes up the duplicates waiting here.
+     */
+    public void finish(String key, IdempotencyRecord response) {
+        try {
+            if (response != null) {
+                IdempotencyRecord stored = response.expiringAt(Instant.now().plus(ttl));
+                completed.put(key, stored);
+                repository.complete(stored);
+            } else {
+                repository.release(key);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not record the outcome of idempotency key {}: {}", key, ex.getMessage());
+        } finally {
+            leave(key, response);
+        }
+    }
+
+    private void leave(String key, IdempotencyRecord response) {
+        CompletableFuture<IdempotencyRecord> execution = inFlight.remove(key);
+        if (execution != null) {
+            execution.complete(response);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.sweetshop.backend.idempotency;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link IdempotencyRepository} for the single-instance {@code inmemory} profile. Records are not persisted,
+ * so keys are forgotten on restart.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryIdempotencyRepository implements IdempotencyRepository {
+
+    private final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean claim(IdempotencyRecord pending) {
+        Instant now = Instant.now();
+        IdempotencyRecord owner = records.compute(pending.getKey(),
+                (key, existing) -> existing == null || existing.isExpired(now) ? pending : existing);
+        return owner == pending;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> find(String key) {
+        return Optional.ofNullable(records.get(key)).filter(record -> !record.isExpired(Instant.now()));
+    }
+
+    @Override
+    public void complete(IdempotencyRecord completed) {
+        records.put(completed.getKey(), completed);
+    }
+
+    @Override
+    public void release(String key) {
+        records.computeIfPresent(key, (k, existing) -> existing.isCompleted() ? existing : null);
+    }
+
+    @Scheduled(fixedDelayString = "${sweetshop.idempotency.purge-interval:PT1M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        records.values().removeIf(record -> record.isExpired(now));
+    }
+}
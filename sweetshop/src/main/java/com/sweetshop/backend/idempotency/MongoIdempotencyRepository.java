@@ -0,0 +1,55 @@
+package com.sweetshop.backend.idempotency;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Keeps idempotency records in the {@code idempotency_keys} collection; the TTL index on {@code expiresAt}
+ * (created by {@code MongoIndexInitializer}) removes them once they expire.
+ */
+@Repository
+@Profile("!inmemory")
+public class MongoIdempotencyRepository implements IdempotencyRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIdempotencyRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean claim(IdempotencyRecord pending) {
+        try {
+            mongoTemplate.insert(pending);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            // The TTL monitor only runs once a minute, so an expired record may still be there
+            Query expired = new Query(Criteria.where("key").is(pending.getKey()).and("expiresAt").lte(Instant.now()));
+            return mongoTemplate.findAndReplace(expired, pending) != null;
+        }
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> find(String key) {
+        return Optional.ofNullable(mongoTemplate.findById(key, IdempotencyRecord.class))
+                .filter(record -> !record.isExpired(Instant.now()));
+    }
+
+    @Override
+    public void complete(IdempotencyRecord completed) {
+        mongoTemplate.save(completed);
+    }
+
+    @Override
+    public void release(String key) {
+        mongoTemplate.remove(new Query(Criteria.where("key").is(key).and("completed").is(false)),
+                IdempotencyRecord.class);
+    }
+}
@@ -0,0 +1,41 @@
+package com.sweetshop.backend.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Turns low-priority requests away while MongoDB is slow, so the capacity left goes to purchases and logins.
+ * <p>
+ * Above {@code sweetshop.ratelimit.shed.latency-threshold} of average command latency, searches and listings
+ * are shed (level 1); above twice the threshold every route except purchases and authentication is (level 2).
+ * A zero threshold disables shedding.
+ */
+@Component
+public class LoadShedder {
+
+    private final MongoLatencyMonitor latencyMonitor;
+    private final long thresholdNanos;
+
+    public LoadShedder(MongoLatencyMonitor latencyMonitor,
+                       @Value("${sweetshop.ratelimit.shed.latency-threshold:250ms}") Duration threshold) {
+        this.latencyMonitor = latencyMonitor;
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    public int getLevel() {
+        if (thresholdNanos <= 0) {
+            return 0;
+        }
+        double latency = latencyMonitor.getAverageNanos();
+        if (latency >= 2.0 * thresholdNanos) {
+            return 2;
+        }
+        return latency >= thresholdNanos ? 1 : 0;
+    }
+
+    public boolean shouldShed(RateLimitRoute route) {
+        return route.getSheddingLevel() > 0 && route.getSheddingLevel() <= getLevel();
+    }
+}
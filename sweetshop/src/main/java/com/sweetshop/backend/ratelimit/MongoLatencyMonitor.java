@@ -0,0 +1,91 @@
+package com.sweetshop.backend.ratelimit;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted moving average of MongoDB command latency, fed by the driver as a
+ * {@link CommandListener}. Failed commands count too, since timeouts are the clearest sign of an overloaded
+ * database. Without a command for {@link #IDLE_RESET} the average reads as 0, so a node that has shed all its
+ * reads is not stuck on a stale value.
+ * <p>
+ * Only commands a request waits on are sampled: queries and find-and-modify updates issued on a request thread.
+ * Cursor continuations, bulk writes, transaction commits, and the scans of rebuilds and migrations take longer
+ * by nature and would keep the average above the shedding threshold on a healthy database.
+ */
+@Component
+public class MongoLatencyMonitor implements CommandListener {
+
+    // Weight of the newest sample; about the last 20 commands dominate the average
+    private static final double SMOOTHING = 0.1;
+    private static final long IDLE_RESET = Duration.ofSeconds(2).toNanos();
+    private static final Set<String> SAMPLED_COMMANDS = Set.of("find", "aggregate", "count", "distinct",
+            "findAndModify");
+
+    private final AtomicLong averageBits = new AtomicLong(Double.doubleToRawLongBits(0));
+    private volatile long lastSampleNanos = System.nanoTime() - IDLE_RESET;
+    // Request ids of the started commands that are sampled when they finish
+    private final Set<Integer> sampled = ConcurrentHashMap.newKeySet();
+
+    public MongoLatencyMonitor(MeterRegistry meterRegistry) {
+        Gauge.builder("sweetshop.mongo.latency.average", this, monitor -> monitor.getAverageNanos() / 1e9)
+                .description("Moving average of MongoDB command latency used for load shedding")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // The synchronous driver notifies on the thread that issued the command, so the request context is visible
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (SAMPLED_COMMANDS.contains(event.getCommandName()) && RequestContextHolder.getRequestAttributes() != null) {
+            sampled.add(event.getRequestId());
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (sampled.remove(event.getRequestId())) {
+            record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        if (sampled.remove(event.getRequestId())) {
+            record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    public double getAverageNanos() {
+        if (System.nanoTime() - lastSampleNanos >= IDLE_RESET) {
+            return 0;
+        }
+        return Double.longBitsToDouble(averageBits.get());
+    }
+
+    void record(long elapsedNanos) {
+        long now = System.nanoTime();
+        boolean idle = now - lastSampleNanos >= IDLE_RESET;
+        lastSampleNanos = now;
+        while (true) {
+            long current = averageBits.get();
+            double average = Double.longBitsToDouble(current);
+            double next = idle ? elapsedNanos : average + SMOOTHING * (elapsedNanos - average);
+            if (averageBits.compareAndSet(current, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+}
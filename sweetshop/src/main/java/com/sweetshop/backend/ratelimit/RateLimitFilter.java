@@ -0,0 +1,85 @@
+package com.sweetshop.backend.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link LoadShedder} and {@link RateLimiter} to API requests. It runs right after the JWT filter, so
+ * authenticated requests are counted against the user's email; authentication requests and anonymous ones
+ * are counted against the client address.
+ * <p>
+ * A client over its budget gets 429, a shed request 503, both with {@code Retry-After}. Requests the
+ * {@link ShedExemption} answers without the database are never shed.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final LoadShedder loadShedder;
+    private final ShedExemption shedExemption;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(RateLimiter rateLimiter, LoadShedder loadShedder, ShedExemption shedExemption,
+                           MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+        this.shedExemption = shedExemption;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.OPTIONS.matches(request.getMethod()) || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimitRoute route = RateLimitRoute.of(request.getMethod(), request.getRequestURI());
+
+        if (loadShedder.shouldShed(route) && !shedExemption.isServedWithoutDatabase(request)) {
+            reject(response, route, "shed", HttpStatus.SERVICE_UNAVAILABLE, 1,
+                    "The service is busy, please retry shortly");
+            return;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(route, client(request, route));
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            reject(response, route, "rate_limited", HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                    "Too many requests, please retry later");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static String client(HttpServletRequest request, RateLimitRoute route) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (route == RateLimitRoute.AUTH || authentication == null || !authentication.isAuthenticated()) {
+            return "ip:" + request.getRemoteAddr();
+        }
+        return "user:" + authentication.getName();
+    }
+
+    private void reject(HttpServletResponse response, RateLimitRoute route, String reason, HttpStatus status,
+                        long retryAfterSeconds, String message) throws IOException {
+        meterRegistry.counter("sweetshop.ratelimit.rejected", "route", route.name().toLowerCase(), "reason", reason)
+                .increment();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+}
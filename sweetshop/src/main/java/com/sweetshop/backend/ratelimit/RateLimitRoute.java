@@ -0,0 +1,43 @@
+package com.sweetshop.backend.ratelimit;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Groups of endpoints that share a rate limit budget. {@code sheddingLevel} is the load shedding level from
+ * which a route is turned away; routes with 0 are never shed.
+ */
+public enum RateLimitRoute {
+
+    // Keyed by client address, since these requests are not authenticated yet; each one can cost a BCrypt hash
+    AUTH(0),
+    PURCHASE(0),
+    SEARCH(1),
+    DEFAULT(2);
+
+    private final int sheddingLevel;
+
+    RateLimitRoute(int sheddingLevel) {
+        this.sheddingLevel = sheddingLevel;
+    }
+
+    public int getSheddingLevel() {
+        return sheddingLevel;
+    }
+
+    static RateLimitRoute of(String method, String path) {
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (HttpMethod.POST.matches(method)
+                && (path.endsWith("/purchase") || path.endsWith("/restock") || path.equals("/api/sweets/purchase/batch"))) {
+            return PURCHASE;
+        }
+        if (HttpMethod.GET.matches(method)
+                && (path.equals("/api/sweets") || path.startsWith("/api/sweets/search")
+                    || path.equals("/api/sweets/suggest") || path.equals("/api/sweets/facets")
+                    || path.equals("/api/sweets/export"))) {
+            return SEARCH;
+        }
+        return DEFAULT;
+    }
+}
@@ -0,0 +1,91 @@
+package com.sweetshop.backend.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link TokenBucket} per route and client. Budgets are written as {@code <burst>/<period>}, e.g.
+ * {@code 10/1m}: up to 10 requests at once, refilled at 10 per minute. A blank budget leaves the route unlimited.
+ * <p>
+ * A bucket that has not been used for its longest period is full again, so it is dropped rather than kept;
+ * {@code sweetshop.ratelimit.max-clients} bounds the number held at once.
+ */
+@Component
+public class RateLimiter {
+
+    private final Map<RateLimitRoute, Budget> budgets = new EnumMap<>(RateLimitRoute.class);
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimiter(@Value("${sweetshop.ratelimit.auth:10/1m}") String auth,
+                       @Value("${sweetshop.ratelimit.purchase:60/1m}") String purchase,
+                       @Value("${sweetshop.ratelimit.search:120/1m}") String search,
+                       @Value("${sweetshop.ratelimit.default:300/1m}") String defaultBudget,
+                       @Value("${sweetshop.ratelimit.max-clients:100000}") long maxClients) {
+        register(RateLimitRoute.AUTH, auth);
+        register(RateLimitRoute.PURCHASE, purchase);
+        register(RateLimitRoute.SEARCH, search);
+        register(RateLimitRoute.DEFAULT, defaultBudget);
+        Duration longestPeriod = budgets.values().stream()
+                .map(Budget::period)
+                .max(Duration::compareTo)
+                .orElse(Duration.ofMinutes(1));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(longestPeriod)
+                .build();
+    }
+
+    /**
+     * Takes a token from the bucket of {@code client} on {@code route}, returning 0, or returns how many
+     * nanoseconds until the client may try again.
+     */
+    public long tryAcquire(RateLimitRoute route, String client) {
+        return tryAcquire(route, client, System.nanoTime());
+    }
+
+    long tryAcquire(RateLimitRoute route, String client, long nowNanos) {
+        Budget budget = budgets.get(route);
+        if (budget == null) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(route.name() + ':' + client,
+                key -> new TokenBucket(budget.burst(), budget.refillIntervalNanos(), nowNanos));
+        return bucket.tryTake(nowNanos);
+    }
+
+    private void register(RateLimitRoute route, String budget) {
+        if (StringUtils.hasText(budget)) {
+            budgets.put(route, Budget.parse(route, budget.trim()));
+        }
+    }
+
+    private record Budget(long burst, Duration period) {
+
+        static Budget parse(RateLimitRoute route, String value) {
+            int slash = value.indexOf('/');
+            try {
+                long burst = Long.parseLong(value.substring(0, slash).trim());
+                Duration period = DurationStyle.detectAndParse(value.substring(slash + 1).trim());
+                if (burst > 0 && !period.isNegative() && !period.isZero()) {
+                    return new Budget(burst, period);
+                }
+            } catch (RuntimeException ex) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Rate limit for " + route + " must look like <burst>/<period>, e.g."
+                    + " 10/1m, but was '" + value + "'");
+        }
+
+        long refillIntervalNanos() {
+            return Math.max(1, period.toNanos() / burst);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.sweetshop.backend.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Recognizes requests that will be answered without querying MongoDB, e.g. with 304 Not Modified or from a
+ * cache. Shedding those would free no database capacity, so {@link RateLimitFilter} lets them through.
+ */
+@FunctionalInterface
+public interface ShedExemption {
+
+    boolean isServedWithoutDatabase(HttpServletRequest request);
+}
@@ -1,26 +1,32 @@
 package com.sweetshop.backend.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final Timer verifyTimer;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService, MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
+        // Includes cache hits, so the distribution shows how often the signature check is actually paid for
+        this.verifyTimer = Timer.builder("sweetshop.jwt.verification")
+                .description("Time spent verifying bearer tokens")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -36,23 +42,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7);
         
-        if (jwtService.isTokenValid(token)) {
-            String email = jwtService.extractEmail(token);
-            String role = jwtService.extractRole(token);
-            
-            if (role == null) {
-                role = "USER";
-            }
-            
+        verifyTimer.record(() -> jwtService.verify(token)).ifPresent(principal -> {
             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                email,
+                principal.getEmail(),
                 null,
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+                principal.getAuthorities()
             );
-            
+
             authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authToken);
-        }
+        });
         
         filterChain.doFilter(request, response);
     }
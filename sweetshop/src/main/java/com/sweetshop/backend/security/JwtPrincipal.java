@@ -0,0 +1,42 @@
+package com.sweetshop.backend.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Identity extracted from a verified JWT. Immutable, so one instance can be shared by every request
+ * that presents the same token.
+ */
+public final class JwtPrincipal {
+
+    private final String email;
+    private final String role;
+    private final Instant expiresAt;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtPrincipal(String email, String role, Instant expiresAt) {
+        this.email = email;
+        this.role = role != null ? role : "USER";
+        this.expiresAt = expiresAt;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + this.role));
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
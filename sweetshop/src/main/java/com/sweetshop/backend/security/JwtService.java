@@ -1,26 +1,48 @@
 package com.sweetshop.backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret:your-256-bit-secret-key-must-be-at-least-32-characters-long}")
-    private String secret;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expiration;
 
-    @Value("${jwt.expiration:86400000}") // 24 hours
-    private Long expiration;
+    // Verified principals keyed by a hash of the token; each entry lives until its token expires
+    private final Cache<String, JwtPrincipal> verifiedTokens;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    public JwtService(@Value("${jwt.secret:your-256-bit-secret-key-must-be-at-least-32-characters-long}") String secret,
+                      @Value("${jwt.expiration:86400000}") long expiration, // 24 hours
+                      @Value("${jwt.cache-size:10000}") long cacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.expiration = expiration;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpires())
+                .recordStats()
+                .build();
     }
 
     public String generateToken(String email, String role) {
@@ -29,10 +51,36 @@ public class JwtService {
                 .claim("role", role)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry of {@code token} once and returns the identity it carries.
+     * Repeated calls with the same token are answered from the cache until the token expires.
+     */
+    public Optional<JwtPrincipal> verify(String token) {
+        String key = hash(token);
+        JwtPrincipal cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        JwtPrincipal principal;
+        try {
+            Claims claims = extractAllClaims(token);
+            Date expiresAt = claims.getExpiration();
+            principal = new JwtPrincipal(claims.getSubject(), claims.get("role", String.class),
+                    expiresAt != null ? expiresAt.toInstant() : null);
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+        if (principal.getExpiresAt() != null) {
+            verifiedTokens.put(key, principal);
+        }
+        return Optional.of(principal);
+    }
+
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -47,20 +95,48 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public boolean isTokenValid(String token) {
+        return verify(token).isPresent();
+    }
+
+    public CacheStats verificationCacheStats() {
+        return verifiedTokens.stats();
+    }
+
+    private static String hash(String token) {
         try {
-            extractAllClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
-}
 
+    private static final class UntilTokenExpires implements Expiry<String, JwtPrincipal> {
+
+        private static final Duration MAX_EXPIRY = Duration.ofNanos(Long.MAX_VALUE);
+
+        // A far-off expiry does not fit in a long of nanoseconds; such a token simply never leaves by expiry
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+            Duration remaining = Duration.between(Instant.now(), principal.getExpiresAt());
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return remaining.compareTo(MAX_EXPIRY) >= 0 ? Long.MAX_VALUE : remaining.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
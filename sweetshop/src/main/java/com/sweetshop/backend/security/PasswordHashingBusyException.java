@@ -0,0 +1,10 @@
+package com.sweetshop.backend.security;
+
+import com.sweetshop.backend.common.StacklessException;
+
+public class PasswordHashingBusyException extends StacklessException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
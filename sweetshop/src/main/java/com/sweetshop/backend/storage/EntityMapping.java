@@ -0,0 +1,46 @@
+package com.sweetshop.backend.storage;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * How an {@link InMemoryStore} reads and assigns the id of an entity and takes a private copy of it.
+ * Stored instances are never handed out, so callers can mutate what they get back without touching the store.
+ */
+public final class EntityMapping<T> {
+
+    private final Class<T> type;
+    private final Function<T, String> idGetter;
+    private final BiConsumer<T, String> idSetter;
+    private final UnaryOperator<T> copier;
+
+    private EntityMapping(Class<T> type, Function<T, String> idGetter, BiConsumer<T, String> idSetter,
+                          UnaryOperator<T> copier) {
+        this.type = type;
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+        this.copier = copier;
+    }
+
+    public static <T> EntityMapping<T> of(Class<T> type, Function<T, String> idGetter,
+                                          BiConsumer<T, String> idSetter, UnaryOperator<T> copier) {
+        return new EntityMapping<>(type, idGetter, idSetter, copier);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public String getId(T entity) {
+        return idGetter.apply(entity);
+    }
+
+    public void setId(T entity, String id) {
+        idSetter.accept(entity, id);
+    }
+
+    public T copy(T entity) {
+        return copier.apply(entity);
+    }
+}
@@ -0,0 +1,216 @@
+package com.sweetshop.backend.storage;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link MongoRepository} contract implemented over an {@link InMemoryStore}, so services written against
+ * Spring Data repositories run unchanged without a MongoDB server. Query-by-example is not supported.
+ */
+public abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+    protected final InMemoryStore<T> store;
+    private final Function<T, Long> versionGetter;
+
+    protected InMemoryMongoRepository(InMemoryStore<T> store) {
+        this(store, null);
+    }
+
+    /**
+     * For entities with a {@code @Version} property, read by {@code versionGetter}: like MongoTemplate, a save
+     * without a version inserts and a save with one only replaces the document still at that version.
+     */
+    protected InMemoryMongoRepository(InMemoryStore<T> store, Function<T, Long> versionGetter) {
+        this.store = store;
+        this.versionGetter = versionGetter;
+    }
+
+    /**
+     * Hook to stamp audit fields before an entity is written.
+     */
+    protected T beforeSave(T entity) {
+        return entity;
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        if (versionGetter == null) {
+            store.put(beforeSave(entity));
+            return entity;
+        }
+        String id = idOf(entity);
+        Long expected = versionGetter.apply(entity);
+        Optional<T> saved = store.putIf(beforeSave(entity), current -> expected == null
+                ? current == null
+                : current != null && expected.equals(versionGetter.apply(current)));
+        if (saved.isEmpty() && expected == null) {
+            throw new DuplicateKeyException("A document with id " + id + " already exists in " + store.getName());
+        }
+        if (saved.isEmpty()) {
+            throw new OptimisticLockingFailureException("Cannot save document " + id + " of " + store.getName()
+                    + " with version " + expected + ", it was modified or deleted meanwhile");
+        }
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> list = StreamSupport.stream(entities.spliterator(), false).toList();
+        if (versionGetter != null) {
+            list.forEach(this::save);
+            return list;
+        }
+        store.putAll(list.stream().map(this::beforeSave).toList());
+        return list;
+    }
+
+    @Override
+    public <S extends T> S insert(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return store.get(id);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return store.contains(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return store.all().toList();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        return store.getAll(StreamSupport.stream(ids.spliterator(), false).toList());
+    }
+
+    @Override
+    public long count() {
+        return store.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        store.remove(id);
+    }
+
+    @Override
+    public void delete(T entity) {
+        store.remove(idOf(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        store.removeAll(StreamSupport.stream(ids.spliterator(), false).map(String.class::cast).toList());
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        store.removeAll(StreamSupport.stream(entities.spliterator(), false).map(this::idOf).toList());
+    }
+
+    @Override
+    public void deleteAll() {
+        store.clear();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return store.all().sorted(comparator(sort)).toList();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> sorted = findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(sorted);
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(sorted.subList(from, to), pageable, sorted.size());
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw queryByExampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw queryByExampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw queryByExampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw queryByExampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw queryByExampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw queryByExampleNotSupported();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw queryByExampleNotSupported();
+    }
+
+    protected abstract String idOf(T entity);
+
+    // Like MongoDB, nulls sort before any value in ascending order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<T> comparator(Sort sort) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<T> byProperty = Comparator.comparing(
+                    entity -> (Comparable) property(entity, order.getProperty()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    private static Object property(Object entity, String name) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        return wrapper.getPropertyValue(name);
+    }
+
+    private static UnsupportedOperationException queryByExampleNotSupported() {
+        return new UnsupportedOperationException("Query by example is not supported by the in-memory store");
+    }
+}
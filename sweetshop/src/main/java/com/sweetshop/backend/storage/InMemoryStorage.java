@@ -0,0 +1,70 @@
+package com.sweetshop.backend.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Owns the {@link InMemoryStore}s used by the {@code inmemory} profile: where they persist, and the
+ * background work that keeps them durable. With an empty {@code sweetshop.storage.directory} the stores are
+ * purely volatile, which suits load tests.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryStorage implements DisposableBean {
+
+    private final Path directory;
+    private final int segmentSize;
+    // Storage format is independent of the JSON the API produces, so it gets its own mapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<InMemoryStore<?>> stores = new CopyOnWriteArrayList<>();
+
+    public InMemoryStorage(@Value("${sweetshop.storage.directory:data}") String directory,
+                           @Value("${sweetshop.storage.segment-size:16MB}") DataSize segmentSize) {
+        this.directory = StringUtils.hasText(directory) ? Path.of(directory) : null;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+    }
+
+    /**
+     * Opens the store called {@code name}; the caller adds its indexes and then calls
+     * {@link InMemoryStore#recover()}.
+     */
+    public <T> InMemoryStore<T> open(String name, EntityMapping<T> mapping) {
+        InMemoryStore<T> store = new InMemoryStore<>(name, mapping, objectMapper, directory, segmentSize);
+        stores.add(store);
+        return store;
+    }
+
+    public boolean isDurable() {
+        return directory != null;
+    }
+
+    @Scheduled(fixedDelayString = "${sweetshop.storage.force-interval:PT1S}")
+    public void force() {
+        stores.forEach(InMemoryStore::force);
+    }
+
+    @Scheduled(fixedDelayString = "${sweetshop.storage.snapshot-interval:PT5M}",
+            initialDelayString = "${sweetshop.storage.snapshot-interval:PT5M}")
+    public void snapshot() {
+        stores.forEach(InMemoryStore::snapshot);
+    }
+
+    @Override
+    public void destroy() {
+        for (InMemoryStore<?> store : stores) {
+            store.snapshot();
+            store.close();
+        }
+    }
+}
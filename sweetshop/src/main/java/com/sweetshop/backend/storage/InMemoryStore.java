@@ -0,0 +1,474 @@
+package com.sweetshop.backend.storage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent in-memory collection of entities keyed by id, with optional secondary indexes and optional
+ * durability.
+ * <p>
+ * Reads never lock: the primary map and the indexes are concurrent structures, and stored instances are
+ * replaced, never mutated, so a reader always sees a whole entity. Writes are serialized by one lock, which
+ * also keeps the indexes and the log in the same order as the map.
+ * <p>
+ * When a directory is given, every write is appended to a {@link MappedLog} before it becomes visible, and
+ * {@link #snapshot()} periodically writes the full state to {@code <name>-snapshot-<sequence>.json} so the log
+ * can be truncated. {@link #recover()} loads the newest snapshot and replays the log segments after it.
+ */
+public final class InMemoryStore<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryStore.class);
+
+    private final String name;
+    private final EntityMapping<T> mapping;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final MappedLog journal;
+    private final Pattern snapshotPattern;
+
+    private final ConcurrentSkipListMap<String, T> documents = new ConcurrentSkipListMap<>();
+    private final List<SecondaryIndex<T, ?>> indexes = new CopyOnWriteArrayList<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /**
+     * Creates a store; with a null {@code directory} it is purely volatile.
+     */
+    public InMemoryStore(String name, EntityMapping<T> mapping, ObjectMapper objectMapper,
+                         Path directory, int segmentSize) {
+        this.name = name;
+        this.mapping = mapping;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.journal = directory != null ? MappedLog.open(directory, name, segmentSize) : null;
+        this.snapshotPattern = Pattern.compile(Pattern.quote(name) + "-snapshot-(\\d+)\\.json");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Adds an index on the key extracted from each entity (null keys are not indexed) and fills it from the
+     * current contents.
+     */
+    public <K extends Comparable<? super K>> SecondaryIndex<T, K> addIndex(String indexName, Function<T, K> keyExtractor) {
+        SecondaryIndex<T, K> index = new SecondaryIndex<>(indexName, keyExtractor);
+        writeLock.lock();
+        try {
+            documents.forEach(index::add);
+            indexes.add(index);
+        } finally {
+            writeLock.unlock();
+        }
+        return index;
+    }
+
+    public Optional<T> get(String id) {
+        T stored = id == null ? null : documents.get(id);
+        return Optional.ofNullable(stored).map(mapping::copy);
+    }
+
+    public boolean contains(String id) {
+        return id != null && documents.containsKey(id);
+    }
+
+    public long size() {
+        return documents.size();
+    }
+
+    /**
+     * Copies of all entities, ordered by id.
+     */
+    public Stream<T> all() {
+        return documents.values().stream().map(mapping::copy);
+    }
+
+    /**
+     * Copies of the entities with an id greater than {@code afterId} (or all when null), ordered by id.
+     */
+    public Stream<T> after(String afterId) {
+        Map<String, T> slice = afterId == null ? documents : documents.tailMap(afterId, false);
+        return slice.values().stream().map(mapping::copy);
+    }
+
+    /**
+     * Copies of the entities with the given ids, ordered by id; unknown ids are skipped.
+     */
+    public List<T> getAll(Collection<String> ids) {
+        return ids.stream()
+                .distinct()
+                .sorted()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .map(mapping::copy)
+                .toList();
+    }
+
+    /**
+     * Inserts or replaces {@code entity}, assigning a new ObjectId-style id when it has none, and returns a
+     * copy of what was stored.
+     */
+    public T put(T entity) {
+        return putAll(List.of(entity)).get(0);
+    }
+
+    public List<T> putAll(Collection<? extends T> entities) {
+        writeLock.lock();
+        try {
+            Map<String, T> changes = new LinkedHashMap<>();
+            for (T entity : entities) {
+                if (mapping.getId(entity) == null) {
+                    mapping.setId(entity, new ObjectId().toHexString());
+                }
+                changes.put(mapping.getId(entity), mapping.copy(entity));
+            }
+            apply(changes, List.of());
+            return changes.values().stream().map(mapping::copy).toList();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Inserts or replaces every entity like {@link #putAll}, storing what {@code merge} returns for a copy of the
+     * entity stored under its id now (null when there is none) and the incoming one. Reads and writes happen in
+     * one atomic step, so concurrent writers cannot interleave with the batch.
+     */
+    public List<T> mergeAll(Collection<? extends T> entities, BinaryOperator<T> merge) {
+        writeLock.lock();
+        try {
+            Map<String, T> changes = new LinkedHashMap<>();
+            for (T entity : entities) {
+                if (mapping.getId(entity) == null) {
+                    mapping.setId(entity, new ObjectId().toHexString());
+                }
+                String id = mapping.getId(entity);
+                // A repeated id in the batch merges with the earlier entry, not the stored one
+                T current = changes.containsKey(id) ? changes.get(id) : documents.get(id);
+                T merged = merge.apply(current == null ? null : mapping.copy(current), entity);
+                mapping.setId(merged, id);
+                changes.put(id, mapping.copy(merged));
+            }
+            apply(changes, List.of());
+            return changes.values().stream().map(mapping::copy).toList();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Inserts or replaces {@code entity} like {@link #put}, but only if {@code expected} accepts a copy of what
+     * is stored under its id now (null when there is none). Completes empty when it was rejected.
+     */
+    public Optional<T> putIf(T entity, Predicate<T> expected) {
+        writeLock.lock();
+        try {
+            if (mapping.getId(entity) == null) {
+                mapping.setId(entity, new ObjectId().toHexString());
+            }
+            String id = mapping.getId(entity);
+            T current = documents.get(id);
+            if (!expected.test(current == null ? null : mapping.copy(current))) {
+                return Optional.empty();
+            }
+            T stored = mapping.copy(entity);
+            apply(Map.of(id, stored), List.of());
+            return Optional.of(mapping.copy(stored));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Atomically replaces the entity with what {@code change} returns for a copy of it. Returning null leaves
+     * it unchanged. Completes empty when the entity does not exist or was left unchanged.
+     */
+    public Optional<T> update(String id, UnaryOperator<T> change) {
+        return updateAll(Map.of(id, change)).map(updated -> updated.get(0));
+    }
+
+    /**
+     * Applies every change in one atomic step, or none of them when an entity is missing or a change returns
+     * null. The changes are also logged as a single record, so recovery never sees half of them.
+     */
+    public Optional<List<T>> updateAll(Map<String, UnaryOperator<T>> changesById) {
+        writeLock.lock();
+        try {
+            Map<String, T> changes = new LinkedHashMap<>();
+            for (Map.Entry<String, UnaryOperator<T>> entry : changesById.entrySet()) {
+                T current = documents.get(entry.getKey());
+                T changed = current == null ? null : entry.getValue().apply(mapping.copy(current));
+                if (changed == null) {
+                    return Optional.empty();
+                }
+                mapping.setId(changed, entry.getKey());
+                changes.put(entry.getKey(), changed);
+            }
+            apply(changes, List.of());
+            return Optional.of(changes.values().stream().map(mapping::copy).toList());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Optional<T> remove(String id) {
+        writeLock.lock();
+        try {
+            T current = documents.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            apply(Map.of(), List.of(id));
+            return Optional.of(mapping.copy(current));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeAll(Collection<String> ids) {
+        writeLock.lock();
+        try {
+            List<String> present = ids.stream().filter(documents::containsKey).distinct().toList();
+            if (!present.isEmpty()) {
+                apply(Map.of(), present);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void clear() {
+        removeAll(List.copyOf(documents.keySet()));
+    }
+
+    /**
+     * Writes the full state to a snapshot file and drops the log segments it covers. No-op for a volatile
+     * store or when another snapshot is already running.
+     */
+    public void snapshot() {
+        if (journal == null || !snapshotLock.tryLock()) {
+            return;
+        }
+        try {
+            long sequence;
+            List<T> state;
+            writeLock.lock();
+            try {
+                // Everything logged so far ends up in segments before this one, and in the state copied here
+                sequence = journal.rotate();
+                state = List.copyOf(documents.values());
+            } finally {
+                writeLock.unlock();
+            }
+            writeSnapshot(sequence, state);
+            journal.deleteSegmentsBefore(sequence);
+            deleteSnapshotsBefore(sequence);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    public void force() {
+        if (journal != null) {
+            journal.force();
+        }
+    }
+
+    /**
+     * Reloads the state from the newest snapshot and the log written after it. Call once, before first use.
+     */
+    public void recover() {
+        if (journal == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            documents.clear();
+            indexes.forEach(SecondaryIndex::clear);
+            long fromSequence = loadLatestSnapshot();
+            long[] records = {0};
+            journal.replay(fromSequence, payload -> {
+                replayRecord(payload);
+                records[0]++;
+            });
+            log.info("Recovered {} {} from snapshot {} and {} log records", documents.size(), name,
+                    fromSequence, records[0]);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // Caller holds the write lock
+    private void apply(Map<String, T> puts, List<String> deletes) {
+        if (journal != null) {
+            journal.append(encode(puts.values(), deletes));
+        }
+        puts.forEach(this::store);
+        deletes.forEach(this::delete);
+    }
+
+    private void store(String id, T entity) {
+        T previous = documents.put(id, entity);
+        for (SecondaryIndex<T, ?> index : indexes) {
+            if (previous != null) {
+                index.remove(id, previous);
+            }
+            index.add(id, entity);
+        }
+    }
+
+    private void delete(String id) {
+        T previous = documents.remove(id);
+        if (previous != null) {
+            indexes.forEach(index -> index.remove(id, previous));
+        }
+    }
+
+    private byte[] encode(Collection<T> puts, List<String> deletes) {
+        ObjectNode record = objectMapper.createObjectNode();
+        ArrayNode putNodes = record.putArray("put");
+        puts.forEach(entity -> putNodes.add(objectMapper.valueToTree(entity)));
+        ArrayNode deleteNodes = record.putArray("delete");
+        deletes.forEach(deleteNodes::add);
+        try {
+            return objectMapper.writeValueAsBytes(record);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not encode " + name + " log record", ex);
+        }
+    }
+
+    private void replayRecord(byte[] payload) {
+        try {
+            JsonNode record = objectMapper.readTree(payload);
+            for (JsonNode node : record.path("put")) {
+                T entity = objectMapper.treeToValue(node, mapping.getType());
+                store(mapping.getId(entity), entity);
+            }
+            for (JsonNode id : record.path("delete")) {
+                delete(id.asText());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Corrupt " + name + " log record", ex);
+        }
+    }
+
+    private void writeSnapshot(long sequence, List<T> state) {
+        Path target = snapshotPath(sequence);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (T entity : state) {
+                writer.write(objectMapper.writeValueAsString(entity));
+                writer.newLine();
+            }
+            writer.flush();
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write " + name + " snapshot", ex);
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not publish " + name + " snapshot", ex);
+        }
+        log.debug("Wrote {} snapshot {} with {} entries", name, sequence, state.size());
+    }
+
+    // Returns the log sequence the snapshot covers up to, or 0 to replay the whole log
+    private long loadLatestSnapshot() {
+        List<Long> sequences = snapshotSequences();
+        if (sequences.isEmpty()) {
+            return 0;
+        }
+        long sequence = sequences.get(sequences.size() - 1);
+        try (BufferedReader reader = Files.newBufferedReader(snapshotPath(sequence), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    T entity = objectMapper.readValue(line, mapping.getType());
+                    store(mapping.getId(entity), entity);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read " + name + " snapshot " + sequence, ex);
+        }
+        return sequence;
+    }
+
+    private void deleteSnapshotsBefore(long sequence) {
+        for (long existing : snapshotSequences()) {
+            if (existing < sequence) {
+                try {
+                    Files.deleteIfExists(snapshotPath(existing));
+                } catch (IOException ex) {
+                    log.warn("Could not delete old {} snapshot {}: {}", name, existing, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<Long> snapshotSequences() {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = snapshotPattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sequences.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not list " + name + " snapshots", ex);
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private Path snapshotPath(long sequence) {
+        return directory.resolve(String.format("%s-snapshot-%016d.json", name, sequence));
+    }
+}
@@ -0,0 +1,290 @@
+package com.sweetshop.backend.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records written through memory-mapped, fixed-size segment files
+ * ({@code <name>-<sequence>.log}).
+ * <p>
+ * Each record is {@code [int length][int crc32c][payload]}; a zero length marks the end of a segment.
+ * A write lands in the page cache as soon as {@link #append} returns, so it survives a crash of the JVM;
+ * {@link #force()} is what makes it survive a crash of the machine. On open, a torn record at the tail of
+ * the last segment is detected by its checksum and discarded.
+ */
+public final class MappedLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedLog.class);
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final String name;
+    private final int segmentSize;
+    private final Pattern segmentPattern;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Segment current;
+
+    private MappedLog(Path directory, String name, int segmentSize) {
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.log");
+    }
+
+    /**
+     * Opens the log in {@code directory}, continuing after the last valid record of the newest segment.
+     */
+    public static MappedLog open(Path directory, String name, int segmentSize) {
+        MappedLog mappedLog = new MappedLog(directory, name, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            List<Long> sequences = mappedLog.segmentSequences();
+            long last = sequences.isEmpty() ? 1 : sequences.get(sequences.size() - 1);
+            mappedLog.current = mappedLog.openSegment(last, segmentSize);
+            mappedLog.current.position = mappedLog.current.recoverEnd();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open log " + name + " in " + directory, ex);
+        }
+        return mappedLog;
+    }
+
+    /**
+     * Appends one record and returns the sequence of the segment it was written to.
+     */
+    public long append(byte[] payload) {
+        lock.lock();
+        try {
+            int required = HEADER_SIZE + payload.length;
+            // Keep room for the zero length that terminates the segment
+            if (current.position + required + Integer.BYTES > current.buffer.capacity()) {
+                rotateLocked(required + Integer.BYTES);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            MappedByteBuffer buffer = current.buffer;
+            int position = current.position;
+            buffer.put(position + HEADER_SIZE, payload);
+            buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(position + required, 0);
+            // The length goes last, so a reader never sees a length without its payload
+            buffer.putInt(position, payload.length);
+            current.position = position + required;
+            current.dirty = true;
+            return current.sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its sequence. Every record appended before this call lives in an
+     * earlier segment, which is forced to disk first.
+     */
+    public long rotate() {
+        lock.lock();
+        try {
+            rotateLocked(0);
+            return current.sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long currentSequence() {
+        lock.lock();
+        try {
+            return current.sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the current segment to the storage device. Runs outside the append lock, so appends continue
+     * while the flush is in progress.
+     */
+    public void force() {
+        Segment segment;
+        lock.lock();
+        try {
+            segment = current;
+            if (!segment.dirty) {
+                return;
+            }
+            segment.dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        segment.buffer.force();
+    }
+
+    /**
+     * Feeds every record of the segments from {@code fromSequence} on to {@code consumer}, in append order.
+     */
+    public void replay(long fromSequence, Consumer<byte[]> consumer) {
+        lock.lock();
+        try {
+            for (long sequence : segmentSequences()) {
+                if (sequence < fromSequence) {
+                    continue;
+                }
+                if (sequence == current.sequence) {
+                    current.forEachRecord(consumer);
+                } else {
+                    Segment segment = openSegment(sequence, 0);
+                    try {
+                        segment.forEachRecord(consumer);
+                    } finally {
+                        segment.closeChannel();
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not replay log " + name, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments older than {@code sequence}, e.g. once a snapshot covers them.
+     */
+    public void deleteSegmentsBefore(long sequence) {
+        lock.lock();
+        try {
+            for (long existing : segmentSequences()) {
+                if (existing < sequence && existing != current.sequence) {
+                    Files.deleteIfExists(segmentPath(existing));
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Could not delete old segments of log {}: {}", name, ex.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            current.buffer.force();
+            current.closeChannel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rotateLocked(int minimumSize) {
+        try {
+            current.buffer.force();
+            current.closeChannel();
+            current = openSegment(current.sequence + 1, Math.max(segmentSize, minimumSize));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not rotate log " + name, ex);
+        }
+    }
+
+    private List<Long> segmentSequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sequences.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s-%016d.log", name, sequence));
+    }
+
+    // A size of 0 maps an existing segment exactly as large as it is
+    private Segment openSegment(long sequence, int size) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long mappedSize = Math.max(size, channel.size());
+        return new Segment(sequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+    }
+
+    private static final class Segment {
+
+        private final long sequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private boolean dirty;
+
+        private Segment(long sequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Walks the valid records and returns the offset after the last one, zeroing a torn tail.
+         */
+        private int recoverEnd() {
+            int end = walk(payload -> { });
+            for (int i = end; i < Math.min(buffer.capacity(), end + HEADER_SIZE); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            return end;
+        }
+
+        private void forEachRecord(Consumer<byte[]> consumer) {
+            walk(consumer);
+        }
+
+        private int walk(Consumer<byte[]> consumer) {
+            int offset = 0;
+            CRC32C crc = new CRC32C();
+            while (offset + HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(offset + HEADER_SIZE, payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                    break;
+                }
+                consumer.accept(payload);
+                offset += HEADER_SIZE + length;
+            }
+            return offset;
+        }
+
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.debug("Could not close log segment {}: {}", sequence, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.sweetshop.backend.storage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sorted map from an attribute value to the ids of the entities that have it. Lookups are lock-free and may
+ * briefly disagree with the primary map while a write is in progress, so callers treat the result as
+ * candidates and re-check each entity.
+ */
+public final class SecondaryIndex<T, K extends Comparable<? super K>> {
+
+    private final String name;
+    private final Function<T, K> keyExtractor;
+    private final ConcurrentSkipListMap<K, Set<String>> entries = new ConcurrentSkipListMap<>();
+
+    SecondaryIndex(String name, Function<T, K> keyExtractor) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> equalTo(K key) {
+        Set<String> ids = entries.get(key);
+        return ids == null ? Set.of() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Ids whose key lies within the inclusive bounds; a null bound is open.
+     */
+    public Set<String> range(K from, K to) {
+        NavigableMap<K, Set<String>> slice = entries;
+        if (from != null) {
+            slice = slice.tailMap(from, true);
+        }
+        if (to != null) {
+            slice = slice.headMap(to, true);
+        }
+        return collect(slice, key -> true);
+    }
+
+    /**
+     * Ids whose key satisfies {@code predicate}; scans distinct keys rather than entities.
+     */
+    public Set<String> matching(Predicate<K> predicate) {
+        return collect(entries, predicate);
+    }
+
+    void add(String id, T entity) {
+        K key = keyExtractor.apply(entity);
+        if (key != null) {
+            entries.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    // Only called with the store's write lock held, so emptied buckets can be dropped safely
+    void remove(String id, T entity) {
+        K key = keyExtractor.apply(entity);
+        if (key == null) {
+            return;
+        }
+        Set<String> ids = entries.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                entries.remove(key, ids);
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private static <K> Set<String> collect(Map<K, Set<String>> slice, Predicate<K> predicate) {
+        Set<String> ids = new HashSet<>();
+        slice.forEach((key, bucket) -> {
+            if (predicate.test(key)) {
+                ids.addAll(bucket);
+            }
+        });
+        return ids;
+    }
+}
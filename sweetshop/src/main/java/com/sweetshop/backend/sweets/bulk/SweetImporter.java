@@ -0,0 +1,218 @@
+package com.sweetshop.backend.sweets.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.sweetshop.backend.sweets.dto.ImportError;
+import com.sweetshop.backend.sweets.dto.ImportReport;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetImportResult;
+import com.sweetshop.backend.sweets.service.SweetService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Loads sweets from an NDJSON (the format of {@code /api/sweets/export}) or CSV upload.
+ * <p>
+ * Rows are parsed one at a time from the stream, checked against the constraints on {@link Sweet}, and written
+ * in batches of {@code sweetshop.import.batch-size} through {@link SweetService#importSweets}. Only one batch
+ * and the first {@code sweetshop.import.max-errors} errors are held, so memory does not grow with the upload.
+ * A CSV upload starts with a header row naming its columns: name, category, price, quantity and optionally id.
+ */
+@Component
+public class SweetImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(SweetImporter.class);
+
+    private final SweetService sweetService;
+    private final Validator validator;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public SweetImporter(SweetService sweetService,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         @Value("${sweetshop.import.batch-size:500}") int batchSize,
+                         @Value("${sweetshop.import.max-errors:100}") int maxErrors) {
+        this.sweetService = sweetService;
+        this.validator = validator;
+        this.ndjsonReader = objectMapper.readerFor(Sweet.class);
+        CsvMapper csvMapper = CsvMapper.builder()
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .findAndAddModules()
+                .build();
+        this.csvReader = csvMapper.readerFor(Sweet.class).with(CsvSchema.emptySchema().withHeader());
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportReport importNdjson(InputStream in) throws IOException {
+        return run(ndjsonReader.readValues(in));
+    }
+
+    public ImportReport importCsv(InputStream in) throws IOException {
+        return run(csvReader.readValues(in));
+    }
+
+    private ImportReport run(MappingIterator<Sweet> rows) throws IOException {
+        Progress progress = new Progress();
+        List<Sweet> batch = new ArrayList<>(batchSize);
+        List<Long> lines = new ArrayList<>(batchSize);
+        try (rows) {
+            while (!progress.stopped && hasNext(rows, progress)) {
+                long line = rows.getParser().currentLocation().getLineNr();
+                progress.received++;
+                Sweet sweet = next(rows, line, progress);
+                if (sweet == null) {
+                    continue;
+                }
+                String invalid = violations(sweet);
+                if (invalid != null) {
+                    progress.fail(line, sweet.getId(), invalid);
+                    continue;
+                }
+                // Versions and timestamps of an export are not carried over, the import writes its own
+                sweet.setVersion(null);
+                sweet.setUpdatedAt(null);
+                batch.add(sweet);
+                lines.add(line);
+                if (batch.size() == batchSize) {
+                    write(batch, lines, progress);
+                }
+            }
+            // Rows read before a malformed one are still written; after a failed write the batch is already empty
+            write(batch, lines, progress);
+        }
+        return progress.report();
+    }
+
+    // A malformed document leaves the parser without a reliable position, so nothing after it is read
+    private boolean hasNext(MappingIterator<Sweet> rows, Progress progress) {
+        try {
+            return rows.hasNextValue();
+        } catch (IOException ex) {
+            progress.stop(rows.getParser().currentLocation().getLineNr(), "Malformed input, import stopped: "
+                    + message(ex));
+            return false;
+        }
+    }
+
+    private Sweet next(MappingIterator<Sweet> rows, long line, Progress progress) {
+        try {
+            Sweet sweet = rows.nextValue();
+            if (sweet == null) {
+                progress.fail(line, null, "Row is empty");
+            }
+            return sweet;
+        } catch (JsonMappingException ex) {
+            progress.fail(line, null, message(ex));
+            return null;
+        } catch (IOException ex) {
+            progress.fail(line, null, "Malformed input, import stopped: " + message(ex));
+            progress.stopped = true;
+            return null;
+        }
+    }
+
+    private String violations(Sweet sweet) {
+        Set<ConstraintViolation<Sweet>> violations = validator.validate(sweet);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void write(List<Sweet> batch, List<Long> lines, Progress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // The repository assigns ids to new sweets in place, so note which rows came without one
+        List<Boolean> withoutId = batch.stream().map(sweet -> sweet.getId() == null).toList();
+        try {
+            SweetImportResult result = sweetService.importSweets(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                String failure = result.getFailures().get(i);
+                if (failure != null) {
+                    progress.fail(lines.get(i), withoutId.get(i) ? null : batch.get(i).getId(), failure);
+                } else if (result.isCreated(i)) {
+                    progress.created++;
+                } else {
+                    progress.updated++;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // The store is unavailable; later batches would only fail the same way
+            log.warn("Catalog import stopped after {} rows: {}", progress.received, ex.getMessage());
+            progress.failed += batch.size();
+            progress.stop(lines.get(0), "Could not write the rows from here on, import stopped: " + ex.getMessage());
+        } finally {
+            batch.clear();
+            lines.clear();
+        }
+    }
+
+    private static String message(JsonProcessingException ex) {
+        return ex.getOriginalMessage();
+    }
+
+    private static String message(IOException ex) {
+        return ex instanceof JsonProcessingException processing ? message(processing) : ex.getMessage();
+    }
+
+    private final class Progress {
+
+        private final List<ImportError> errors = new ArrayList<>();
+        private long received;
+        private long created;
+        private long updated;
+        private long failed;
+        private boolean stopped;
+        private boolean truncated;
+
+        void fail(long line, String id, String message) {
+            failed++;
+            record(line, id, message);
+        }
+
+        void stop(long line, String message) {
+            stopped = true;
+            record(line, null, message);
+        }
+
+        private void record(long line, String id, String message) {
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportError(line, id, message));
+            } else {
+                truncated = true;
+            }
+        }
+
+        ImportReport report() {
+            return new ImportReport(received, created, updated, failed, errors, truncated);
+        }
+    }
+}
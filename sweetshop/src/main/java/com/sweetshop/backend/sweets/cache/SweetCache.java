@@ -0,0 +1,124 @@
+package com.sweetshop.backend.sweets.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sweetshop.backend.sweets.model.Sweet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache in front of {@code SweetRepository}.
+ * <p>
+ * Single sweets are cached by id and replaced with the fresh document on every write. Query results
+ * (catalog, search, pages) are keyed by a generation number that every write bumps, so a load that
+ * raced with a write can never be served afterwards.
+ */
+@Component
+public class SweetCache implements MeterBinder {
+
+    private final Cache<String, Optional<Sweet>> sweetsById;
+    private final Cache<QueryKey, List<Sweet>> queries;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong generationStartedAt = new AtomicLong(System.nanoTime());
+    private final long ttlNanos;
+
+    public SweetCache(@Value("${sweetshop.cache.max-size:10000}") long maxSize,
+                      @Value("${sweetshop.cache.ttl:30s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.sweetsById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Weighted by result size so one huge catalog list counts as much as the sweets it holds
+        this.queries = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .<QueryKey, List<Sweet>>weigher((key, sweets) -> sweets.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Sweet> getSweet(String id, Function<String, Optional<Sweet>> loader) {
+        return sweetsById.get(id, loader);
+    }
+
+    public List<Sweet> getQuery(Object key, Supplier<List<Sweet>> loader) {
+        return queries.get(new QueryKey(generation.get(), key), k -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Records a sweet that was just written and drops every cached query result. Two writes to one sweet can
+     * report back out of order, so a state older than the cached one (by {@code @Version}) is not stored.
+     */
+    public void put(Sweet sweet) {
+        sweetsById.asMap().compute(sweet.getId(),
+                (id, cached) -> cached != null && isNewer(cached.orElse(null), sweet) ? cached : Optional.of(sweet));
+        invalidateQueries();
+    }
+
+    public void evict(String id) {
+        sweetsById.invalidate(id);
+        invalidateQueries();
+    }
+
+    public void invalidateAll() {
+        sweetsById.invalidateAll();
+        invalidateQueries();
+    }
+
+    // Picked up by Boot like any MeterBinder bean; publishes hit ratio, evictions and load time
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, sweetsById, "sweets.byId");
+        CaffeineCacheMetrics.monitor(registry, queries, "sweets.queries");
+    }
+
+    /**
+     * Catalog-level change sequence: advances on every write recorded here, and at least once per TTL, because
+     * writes made elsewhere (other instances, migrations, direct database edits) are only picked up here once
+     * cached results expire. Two reads that see the same value saw the same catalog, as far as this instance
+     * knows.
+     */
+    public long catalogVersion() {
+        long startedAt = generationStartedAt.get();
+        long now = System.nanoTime();
+        if (now - startedAt >= ttlNanos && generationStartedAt.compareAndSet(startedAt, now)) {
+            invalidateQueries();
+        }
+        return generation.get();
+    }
+
+    public CacheStats sweetStats() {
+        return sweetsById.stats();
+    }
+
+    public CacheStats queryStats() {
+        return queries.stats();
+    }
+
+    private static boolean isNewer(Sweet cached, Sweet incoming) {
+        return cached != null && cached.getVersion() != null && incoming.getVersion() != null
+                && cached.getVersion() > incoming.getVersion();
+    }
+
+    private void invalidateQueries() {
+        generationStartedAt.set(System.nanoTime());
+        generation.incrementAndGet();
+        queries.invalidateAll();
+    }
+
+    private record QueryKey(long generation, Object key) {
+    }
+}
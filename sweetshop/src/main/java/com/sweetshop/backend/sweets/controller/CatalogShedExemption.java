@@ -0,0 +1,66 @@
+package com.sweetshop.backend.sweets.controller;
+
+import com.sweetshop.backend.ratelimit.ShedExemption;
+import com.sweetshop.backend.sweets.service.SweetService;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshotCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Lets catalog listings through load shedding when {@link SweetController} will answer them from memory: a
+ * conditional request for the current catalog version (304), or the unpaginated list while there is a
+ * snapshot of it.
+ */
+@Component
+public class CatalogShedExemption implements ShedExemption {
+
+    private static final Set<String> CATALOG_PATHS = Set.of("/api/sweets", "/api/sweets/search", "/api/sweets/facets");
+
+    private final SweetService sweetService;
+    private final CatalogSnapshotCache catalogSnapshots;
+
+    public CatalogShedExemption(SweetService sweetService, CatalogSnapshotCache catalogSnapshots) {
+        this.sweetService = sweetService;
+        this.catalogSnapshots = catalogSnapshots;
+    }
+
+    @Override
+    public boolean isServedWithoutDatabase(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!HttpMethod.GET.matches(request.getMethod()) || !CATALOG_PATHS.contains(path)) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean unpaginatedList = path.equals("/api/sweets")
+                && request.getParameter("limit") == null && request.getParameter("cursor") == null;
+        String representation = unpaginatedList
+                ? SweetController.unpaginatedRepresentation(accept, request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+                : SweetController.representation(accept, !path.equals("/api/sweets/facets"));
+        if (isCurrentCatalog(request.getHeader(HttpHeaders.IF_NONE_MATCH), representation)) {
+            return true;
+        }
+        return unpaginatedList && SweetController.prefersJson(accept) && catalogSnapshots.isAvailable();
+    }
+
+    // If-None-Match uses weak comparison, so the W/ prefix is ignored on both sides
+    private boolean isCurrentCatalog(String ifNoneMatch, String representation) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String current = opaqueTag(SweetController.catalogETag(sweetService.getCatalogVersion(), representation));
+        for (String tag : ifNoneMatch.split(",")) {
+            if (opaqueTag(tag.trim()).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
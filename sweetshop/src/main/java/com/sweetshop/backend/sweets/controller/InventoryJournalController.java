@@ -0,0 +1,63 @@
+package com.sweetshop.backend.sweets.controller;
+
+import com.sweetshop.backend.sweets.dto.InventoryDrift;
+import com.sweetshop.backend.sweets.dto.InventoryEntry;
+import com.sweetshop.backend.sweets.journal.InventoryJournal;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.service.SweetService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@RestController
+@RequestMapping("/api/sweets")
+@PreAuthorize("hasRole('ADMIN')")
+public class InventoryJournalController {
+
+    private static final int MAX_HISTORY = 1000;
+
+    private final InventoryJournal journal;
+    private final SweetService sweetService;
+
+    public InventoryJournalController(InventoryJournal journal, SweetService sweetService) {
+        this.journal = journal;
+        this.sweetService = sweetService;
+    }
+
+    @GetMapping("/{id}/journal")
+    public ResponseEntity<List<InventoryEntry>> getJournal(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > MAX_HISTORY) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_HISTORY);
+        }
+        return ResponseEntity.ok(journal.history(id, limit));
+    }
+
+    // Replays the journal of this node and lists every sweet whose stored stock disagrees with it
+    @GetMapping("/journal/drift")
+    public ResponseEntity<List<InventoryDrift>> getDrift() {
+        Map<String, Integer> journaled = new HashMap<>(journal.replay());
+        List<InventoryDrift> drift = new ArrayList<>();
+        for (Sweet sweet : sweetService.getAllSweets()) {
+            Integer expected = journaled.remove(sweet.getId());
+            if (expected != null && !Objects.equals(expected, sweet.getQuantity())) {
+                drift.add(new InventoryDrift(sweet.getId(), expected, sweet.getQuantity()));
+            }
+        }
+        journaled.forEach((id, quantity) -> drift.add(new InventoryDrift(id, quantity, null)));
+        drift.sort(Comparator.comparing(InventoryDrift::getSweetId));
+        return ResponseEntity.ok(drift);
+    }
+}
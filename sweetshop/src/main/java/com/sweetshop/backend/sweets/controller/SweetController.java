@@ -1,23 +1,70 @@
 package com.sweetshop.backend.sweets.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseRequest;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.dto.SweetSuggestion;
+import com.sweetshop.backend.sweets.exception.SweetVersionConflictException;
 import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import com.sweetshop.backend.sweets.protobuf.SweetProtobufHttpMessageConverter;
 import com.sweetshop.backend.sweets.service.SweetService;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshot;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshotCache;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/sweets")
 public class SweetController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    // What the catalog endpoints can be written as, in converter order, which decides ties in negotiation
+    private static final List<MediaType> LIST_FORMATS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+            SMILE, SweetProtobufHttpMessageConverter.PROTOBUF);
+    private static final List<MediaType> FACET_FORMATS = LIST_FORMATS.subList(0, 3);
+    // The catalog version restarts with the process, so catalog ETags carry a per-process prefix
+    private static final String CATALOG_EPOCH = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
     private final SweetService sweetService;
+    private final CatalogSnapshotCache catalogSnapshots;
+    private final ObjectWriter exportWriter;
 
-    public SweetController(SweetService sweetService) {
+    public SweetController(SweetService sweetService, CatalogSnapshotCache catalogSnapshots, ObjectMapper objectMapper) {
         this.sweetService = sweetService;
+        this.catalogSnapshots = catalogSnapshots;
+        // The response stream is owned by the export loop, so Jackson must neither close nor flush it per document
+        this.exportWriter = objectMapper.writerFor(Sweet.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @PostMapping
@@ -27,24 +74,273 @@ public class SweetController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    // Without limit/cursor the legacy unpaginated array is returned for older clients, from the pre-serialized
+    // snapshot when it is current and the client wants JSON. A write racing this request can still move the
+    // version past it, so it is validated and labelled with the catalog version it was built from.
+    // If-None-Match is answered from the catalog version alone, before any data is loaded or serialized
     @GetMapping
-    public ResponseEntity<List<Sweet>> getAllSweets() {
-        return ResponseEntity.ok(sweetService.getAllSweets());
+    public ResponseEntity<?> getAllSweets(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        boolean unpaginated = limit == null && cursor == null;
+        String representation = unpaginated ? unpaginatedRepresentation(accept, acceptEncoding)
+                : representation(accept, true);
+        Optional<CatalogSnapshot> snapshot = unpaginated && prefersJson(accept)
+                ? catalogSnapshots.current() : Optional.empty();
+        if (snapshot.isPresent()) {
+            if (request.checkNotModified(catalogETag(snapshot.get().getCatalogVersion(), representation))) {
+                return null;
+            }
+            return snapshotResponse(snapshot.get(), acceptsGzip(acceptEncoding));
+        }
+        if (request.checkNotModified(catalogETag(representation))) {
+            return null;
+        }
+        if (unpaginated) {
+            return negotiated().body(sweetService.getAllSweets());
+        }
+        SweetSearchCriteria all = new SweetSearchCriteria(null, null, null, null);
+        return negotiated().body(sweetService.getSweetsPage(all, cursor, pageSize(limit)));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Sweet>> searchSweets(
+    public ResponseEntity<?> searchSweets(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) BigDecimal minPrice,
-            @RequestParam(required = false) BigDecimal maxPrice) {
-        return ResponseEntity.ok(sweetService.searchSweets(name, category, minPrice, maxPrice));
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) {
+        if (request.checkNotModified(catalogETag(representation(accept, true)))) {
+            return null;
+        }
+        if (limit == null && cursor == null) {
+            return negotiated().body(sweetService.searchSweets(name, category, minPrice, maxPrice));
+        }
+        SweetSearchCriteria criteria = new SweetSearchCriteria(name, category, minPrice, maxPrice);
+        return negotiated().body(sweetService.getSweetsPage(criteria, cursor, pageSize(limit)));
+    }
+
+    // The list endpoints are also served as CBOR, Smile and protobuf, so shared caches must key on Accept
+    private static ResponseEntity.BodyBuilder negotiated() {
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+    }
+
+    // Whether JSON is the best match for Accept among the list formats
+    static boolean prefersJson(String accept) {
+        return MediaType.APPLICATION_JSON.equals(negotiate(accept, LIST_FORMATS));
+    }
+
+    // The format content negotiation picks for Accept: the first one, in converter order, compatible with the
+    // most preferred acceptable type. Null when none is acceptable or Accept cannot be parsed.
+    private static MediaType negotiate(String accept, List<MediaType> formats) {
+        if (accept == null || accept.isBlank()) {
+            return formats.get(0);
+        }
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(types);
+            if (types.isEmpty()) {
+                return formats.get(0);
+            }
+            for (MediaType type : types) {
+                for (MediaType format : formats) {
+                    if (type.isCompatibleWith(format)) {
+                        return format;
+                    }
+                }
+            }
+            return null;
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Names the format a catalog response is written in, for its ETag. Facets have no protobuf form, so they can
+     * negotiate a different format for the same Accept.
+     */
+    static String representation(String accept, boolean protobuf) {
+        MediaType format = negotiate(accept, protobuf ? LIST_FORMATS : FACET_FORMATS);
+        if (format == null || format.equals(MediaType.APPLICATION_JSON)) {
+            return "json";
+        }
+        if (format.equals(MediaType.APPLICATION_CBOR)) {
+            return "cbor";
+        }
+        return format.equals(SMILE) ? "smile" : "protobuf";
+    }
+
+    // The unpaginated JSON list is gzipped by the application (from the snapshot), so its coding is part of the name
+    static String unpaginatedRepresentation(String accept, String acceptEncoding) {
+        String format = representation(accept, true);
+        return format.equals("json") && acceptsGzip(acceptEncoding) ? "json-gz" : format;
+    }
+
+    // Whether Accept-Encoding allows gzip: listed with a non-zero q-value, or covered by a non-zero "*" when
+    // gzip itself is not listed
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    // A malformed q-value counts as 0, so a coding is never used on a misread preference
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 2 && (parameter.startsWith("q=") || parameter.startsWith("Q="))) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static ResponseEntity<byte[]> snapshotResponse(CatalogSnapshot snapshot, boolean gzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        }
+        return response.body(snapshot.getJson());
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit != null ? limit : DEFAULT_PAGE_SIZE;
+    }
+
+    private String catalogETag(String representation) {
+        return catalogETag(sweetService.getCatalogVersion(), representation);
+    }
+
+    // Weak, since the container may gzip the body (it skips responses with a strong ETag), and named after the
+    // representation, so the JSON, CBOR, Smile, protobuf and gzipped snapshot forms never share a tag
+    static String catalogETag(long catalogVersion, String representation) {
+        return "W/\"" + CATALOG_EPOCH + "-" + catalogVersion + "-" + representation + "\"";
+    }
+
+    private static String sweetETag(Sweet sweet) {
+        return sweet.getVersion() == null ? null : "\"v" + sweet.getVersion() + "\"";
+    }
+
+    // If-Match takes precedence over a version in the body; "*" only requires the sweet to exist
+    private static Long expectedVersion(String ifMatch, Sweet body) {
+        if (ifMatch == null) {
+            return body.getVersion();
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 3 && tag.startsWith("\"v") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(2, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // Falls through to the mismatch below
+            }
+        }
+        throw new SweetVersionConflictException("If-Match does not match the current version of the sweet");
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SweetSuggestion>> suggestSweets(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(sweetService.suggestSweets(prefix, limit));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<List<CategoryFacet>> getCategoryFacets(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) {
+        if (request.checkNotModified(catalogETag(representation(accept, false)))) {
+            return null;
+        }
+        return ResponseEntity.ok(sweetService.getCategoryFacets());
+    }
+
+    @GetMapping("/search/ranked")
+    public ResponseEntity<List<Sweet>> rankedSearch(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(sweetService.rankedSearch(query, limit));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Sweet> getSweet(@PathVariable String id, WebRequest request) {
+        Sweet sweet = sweetService.getSweet(id);
+        String etag = sweetETag(sweet);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok(sweet);
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportSweets(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant updatedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE) : out;
+            try (Stream<Sweet> sweets = sweetService.exportSweets(updatedSince);
+                 OutputStream buffered = new BufferedOutputStream(target, EXPORT_BUFFER_SIZE)) {
+                for (Sweet sweet : (Iterable<Sweet>) sweets::iterator) {
+                    exportWriter.writeValue(buffered, sweet);
+                    buffered.write('\n');
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Sweet> updateSweet(@PathVariable String id, @jakarta.validation.Valid @RequestBody Sweet sweet) {
-        return ResponseEntity.ok(sweetService.updateSweet(id, sweet));
+    public ResponseEntity<Sweet> updateSweet(
+            @PathVariable String id,
+            @jakarta.validation.Valid @RequestBody Sweet sweet,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Sweet saved = sweetService.updateSweet(id, sweet, expectedVersion(ifMatch, sweet));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String etag = sweetETag(saved);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response.body(saved);
     }
 
     @DeleteMapping("/{id}")
@@ -62,6 +358,15 @@ public class SweetController {
         return ResponseEntity.ok(updated);
     }
 
+    // A rejected basket is a conflict with the current stock, like a single purchase that runs short
+    @PostMapping("/purchase/batch")
+    public ResponseEntity<BatchPurchaseResponse> purchaseSweets(
+            @jakarta.validation.Valid @RequestBody BatchPurchaseRequest request) {
+        BatchPurchaseResponse response = sweetService.purchaseSweets(request.getItems());
+        HttpStatus status = response.isCompleted() ? HttpStatus.OK : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(response);
+    }
+
     @PostMapping("/{id}/restock")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Sweet> restockSweet(
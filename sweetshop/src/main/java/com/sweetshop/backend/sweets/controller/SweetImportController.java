@@ -0,0 +1,44 @@
+package com.sweetshop.backend.sweets.controller;
+
+import com.sweetshop.backend.sweets.bulk.SweetImporter;
+import com.sweetshop.backend.sweets.dto.ImportReport;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api/sweets")
+@PreAuthorize("hasRole('ADMIN')")
+public class SweetImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final SweetImporter importer;
+
+    public SweetImportController(SweetImporter importer) {
+        this.importer = importer;
+    }
+
+    // The body is read as a stream, never buffered whole; rows that fail are listed in the report, not a 4xx
+    @PostMapping(path = "/import", consumes = {NDJSON, CSV})
+    public ResponseEntity<ImportReport> importSweets(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        InputStream in = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, GZIP_BUFFER_SIZE) : body;
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV));
+        ImportReport report = csv ? importer.importCsv(in) : importer.importNdjson(in);
+        return ResponseEntity.ok(report);
+    }
+}
@@ -0,0 +1,35 @@
+package com.sweetshop.backend.sweets.controller;
+
+import com.sweetshop.backend.sweets.stream.SweetStreamBroadcaster;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/sweets")
+public class SweetStreamController {
+
+    private final SweetStreamBroadcaster broadcaster;
+
+    public SweetStreamController(SweetStreamBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    // Clients reload the catalog when they (re)connect; the stream carries only the changes after that
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges() {
+        return broadcaster.subscribe()
+                .map(emitter -> ResponseEntity.ok()
+                        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                        .header("X-Accel-Buffering", "no")
+                        .body(emitter))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .build());
+    }
+}
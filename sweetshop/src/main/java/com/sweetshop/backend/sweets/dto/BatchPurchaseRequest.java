@@ -0,0 +1,27 @@
+package com.sweetshop.backend.sweets.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class BatchPurchaseRequest {
+
+    @NotEmpty(message = "At least one item is required")
+    private List<@Valid PurchaseLine> items;
+
+    public BatchPurchaseRequest() {
+    }
+
+    public BatchPurchaseRequest(List<PurchaseLine> items) {
+        this.items = items;
+    }
+
+    public List<PurchaseLine> getItems() {
+        return items;
+    }
+
+    public void setItems(List<PurchaseLine> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sweetshop.backend.sweets.dto;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+
+import java.util.List;
+
+public class BatchPurchaseResponse {
+
+    private boolean completed;
+    private List<PurchaseLineResult> lines;
+    private List<Sweet> sweets;
+
+    public BatchPurchaseResponse() {
+    }
+
+    public BatchPurchaseResponse(boolean completed, List<PurchaseLineResult> lines, List<Sweet> sweets) {
+        this.completed = completed;
+        this.lines = lines;
+        this.sweets = sweets;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public List<PurchaseLineResult> getLines() {
+        return lines;
+    }
+
+    public List<Sweet> getSweets() {
+        return sweets;
+    }
+}
@@ -0,0 +1,53 @@
+package com.sweetshop.backend.sweets.dto;
+
+import java.math.BigDecimal;
+
+public class CategoryFacet {
+
+    private String category;
+    private long count;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private long unitsInStock;
+    private BigDecimal stockValue;
+
+    public CategoryFacet() {
+    }
+
+    public CategoryFacet(String category, long count, BigDecimal minPrice, BigDecimal maxPrice,
+                         long unitsInStock, BigDecimal stockValue) {
+        this.category = category;
+        this.count = count;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.unitsInStock = unitsInStock;
+        this.stockValue = stockValue;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public long getUnitsInStock() {
+        return unitsInStock;
+    }
+
+    /**
+     * Sum of price times quantity over the sweets of the category.
+     */
+    public BigDecimal getStockValue() {
+        return stockValue;
+    }
+}
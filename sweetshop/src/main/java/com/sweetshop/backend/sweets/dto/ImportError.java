@@ -0,0 +1,35 @@
+package com.sweetshop.backend.sweets.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A row of a catalog import that was not written, identified by its line in the upload.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportError {
+
+    private long line;
+    private String id;
+    private String message;
+
+    public ImportError() {
+    }
+
+    public ImportError(long line, String id, String message) {
+        this.line = line;
+        this.id = id;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sweetshop.backend.sweets.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a catalog import. {@code created} counts rows without an id, {@code updated} rows with one, whether
+ * that sweet existed before or not. Only the first errors are listed; {@code failed} counts all of them.
+ */
+public class ImportReport {
+
+    private long received;
+    private long created;
+    private long updated;
+    private long failed;
+    private List<ImportError> errors;
+    private boolean errorsTruncated;
+
+    public ImportReport() {
+    }
+
+    public ImportReport(long received, long created, long updated, long failed, List<ImportError> errors,
+                        boolean errorsTruncated) {
+        this.received = received;
+        this.created = created;
+        this.updated = updated;
+        this.failed = failed;
+        this.errors = errors;
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sweetshop.backend.sweets.dto;
+
+/**
+ * A sweet whose stored quantity differs from the quantity its journal replays to.
+ */
+public class InventoryDrift {
+
+    private String sweetId;
+    private Integer journaledQuantity;
+    private Integer storedQuantity;
+
+    public InventoryDrift() {
+    }
+
+    public InventoryDrift(String sweetId, Integer journaledQuantity, Integer storedQuantity) {
+        this.sweetId = sweetId;
+        this.journaledQuantity = journaledQuantity;
+        this.storedQuantity = storedQuantity;
+    }
+
+    public String getSweetId() {
+        return sweetId;
+    }
+
+    public Integer getJournaledQuantity() {
+        return journaledQuantity;
+    }
+
+    public Integer getStoredQuantity() {
+        return storedQuantity;
+    }
+}
@@ -0,0 +1,69 @@
+package com.sweetshop.backend.sweets.dto;
+
+import java.time.Instant;
+
+/**
+ * One stock change recorded in the inventory journal.
+ */
+public class InventoryEntry {
+
+    private long sequence;
+    private String sweetId;
+    private String type;
+    private Integer change;
+    private Integer quantity;
+    private Long version;
+    private Instant recordedAt;
+
+    public InventoryEntry() {
+    }
+
+    public InventoryEntry(long sequence, String sweetId, String type, Integer change, Integer quantity,
+                          Long version, Instant recordedAt) {
+        this.sequence = sequence;
+        this.sweetId = sweetId;
+        this.type = type;
+        this.change = change;
+        this.quantity = quantity;
+        this.version = version;
+        this.recordedAt = recordedAt;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getSweetId() {
+        return sweetId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Units added (positive) or removed (negative). A purchase or restock records the amount it asked for;
+     * other changes the difference to the previous journaled quantity, or null when that is not known.
+     */
+    public Integer getChange() {
+        return change;
+    }
+
+    /**
+     * Quantity in stock after the change; null once the sweet was deleted.
+     */
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Version of the sweet written by the change; null once the sweet was deleted.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+}
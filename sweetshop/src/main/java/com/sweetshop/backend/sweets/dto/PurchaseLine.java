@@ -0,0 +1,39 @@
+package com.sweetshop.backend.sweets.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public class PurchaseLine {
+
+    @NotBlank(message = "Sweet id is required")
+    private String sweetId;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity to purchase must be positive")
+    private Integer quantity;
+
+    public PurchaseLine() {
+    }
+
+    public PurchaseLine(String sweetId, Integer quantity) {
+        this.sweetId = sweetId;
+        this.quantity = quantity;
+    }
+
+    public String getSweetId() {
+        return sweetId;
+    }
+
+    public void setSweetId(String sweetId) {
+        this.sweetId = sweetId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
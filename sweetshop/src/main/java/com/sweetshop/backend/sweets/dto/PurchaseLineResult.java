@@ -0,0 +1,35 @@
+package com.sweetshop.backend.sweets.dto;
+
+public class PurchaseLineResult {
+
+    private String sweetId;
+    private int quantity;
+    private PurchaseLineStatus status;
+    private Integer remaining;
+
+    public PurchaseLineResult() {
+    }
+
+    public PurchaseLineResult(String sweetId, int quantity, PurchaseLineStatus status, Integer remaining) {
+        this.sweetId = sweetId;
+        this.quantity = quantity;
+        this.status = status;
+        this.remaining = remaining;
+    }
+
+    public String getSweetId() {
+        return sweetId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public PurchaseLineStatus getStatus() {
+        return status;
+    }
+
+    public Integer getRemaining() {
+        return remaining;
+    }
+}
@@ -0,0 +1,8 @@
+package com.sweetshop.backend.sweets.dto;
+
+public enum PurchaseLineStatus {
+    PURCHASED,
+    NOT_FOUND,
+    INSUFFICIENT_STOCK,
+    NOT_APPLIED
+}
@@ -0,0 +1,71 @@
+package com.sweetshop.backend.sweets.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+
+import java.math.BigDecimal;
+
+/**
+ * Compact change notification pushed to {@code /api/sweets/stream} subscribers. Stock changes carry only what
+ * changed; name and category are included when a sweet is created or edited.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SweetDelta {
+
+    private String type;
+    private String id;
+    private String name;
+    private String category;
+    private BigDecimal price;
+    private Integer quantity;
+    private Long version;
+
+    public SweetDelta() {
+    }
+
+    public static SweetDelta of(SweetChangedEvent event) {
+        SweetDelta delta = new SweetDelta();
+        delta.type = event.getType().name();
+        delta.id = event.getSweetId();
+        Sweet sweet = event.getSweet();
+        if (sweet != null) {
+            delta.price = sweet.getPrice();
+            delta.quantity = sweet.getQuantity();
+            delta.version = sweet.getVersion();
+            if (event.getType() == SweetChangedEvent.Type.CREATED || event.getType() == SweetChangedEvent.Type.UPDATED) {
+                delta.name = sweet.getName();
+                delta.category = sweet.getCategory();
+            }
+        }
+        return delta;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,30 @@
+package com.sweetshop.backend.sweets.dto;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+
+import java.util.List;
+
+public class SweetPage {
+
+    private List<Sweet> items;
+    private String next;
+
+    public SweetPage() {
+    }
+
+    public SweetPage(List<Sweet> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<Sweet> getItems() {
+        return items;
+    }
+
+    /**
+     * Opaque cursor for the following page, or null when this is the last page.
+     */
+    public String getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,29 @@
+package com.sweetshop.backend.sweets.dto;
+
+public class SweetSuggestion {
+
+    private String id;
+    private String name;
+    private String category;
+
+    public SweetSuggestion() {
+    }
+
+    public SweetSuggestion(String id, String name, String category) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+}
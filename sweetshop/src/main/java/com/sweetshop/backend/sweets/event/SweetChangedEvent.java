@@ -0,0 +1,64 @@
+package com.sweetshop.backend.sweets.event;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+
+/**
+ * Published by {@code SweetService} after every successful write to the catalog.
+ * Listeners run synchronously on the writing thread unless they opt into async delivery.
+ */
+public class SweetChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        PURCHASED,
+        RESTOCKED
+    }
+
+    private final Type type;
+    private final String sweetId;
+    private final Sweet sweet;
+    private final Integer quantityChange;
+
+    public SweetChangedEvent(Type type, Sweet sweet) {
+        this(type, sweet, null);
+    }
+
+    public SweetChangedEvent(Type type, Sweet sweet, Integer quantityChange) {
+        this(type, sweet.getId(), sweet, quantityChange);
+    }
+
+    private SweetChangedEvent(Type type, String sweetId, Sweet sweet, Integer quantityChange) {
+        this.type = type;
+        this.sweetId = sweetId;
+        this.sweet = sweet;
+        this.quantityChange = quantityChange;
+    }
+
+    public static SweetChangedEvent deleted(String sweetId) {
+        return new SweetChangedEvent(Type.DELETED, sweetId, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSweetId() {
+        return sweetId;
+    }
+
+    /**
+     * The sweet as stored after the change, or null when it was deleted.
+     */
+    public Sweet getSweet() {
+        return sweet;
+    }
+
+    /**
+     * Units a purchase (negative) or restock (positive) asked for, or null for other changes.
+     */
+    public Integer getQuantityChange() {
+        return quantityChange;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sweetshop.backend.sweets.event;
+
+import java.util.List;
+
+/**
+ * Published by {@code SweetService} once for a batch of writes, such as a catalog import, in place of one
+ * {@link SweetChangedEvent} per sweet, so listeners can apply the whole batch in one step.
+ */
+public class SweetsChangedEvent {
+
+    private final List<SweetChangedEvent> changes;
+
+    public SweetsChangedEvent(List<SweetChangedEvent> changes) {
+        this.changes = List.copyOf(changes);
+    }
+
+    /**
+     * The changes in the order they were written.
+     */
+    public List<SweetChangedEvent> getChanges() {
+        return changes;
+    }
+}
@@ -1,6 +1,8 @@
 package com.sweetshop.backend.sweets.exception;
 
-public class InsufficientStockException extends RuntimeException {
+import com.sweetshop.backend.common.StacklessException;
+
+public class InsufficientStockException extends StacklessException {
 
     public InsufficientStockException(String message) {
         super(message);
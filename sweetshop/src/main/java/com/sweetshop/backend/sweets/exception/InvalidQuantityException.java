@@ -0,0 +1,18 @@
+package com.sweetshop.backend.sweets.exception;
+
+/**
+ * A purchase or restock quantity that is not positive. Stays an {@link IllegalArgumentException} so it maps
+ * to 400 like any other bad argument, but skips stack trace capture.
+ */
+public class InvalidQuantityException extends IllegalArgumentException {
+
+    public InvalidQuantityException(String message) {
+        super(message);
+    }
+
+    // IllegalArgumentException has no constructor that disables the stack trace
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
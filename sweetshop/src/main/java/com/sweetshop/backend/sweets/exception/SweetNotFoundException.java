@@ -1,6 +1,8 @@
 package com.sweetshop.backend.sweets.exception;
 
-public class SweetNotFoundException extends RuntimeException {
+import com.sweetshop.backend.common.StacklessException;
+
+public class SweetNotFoundException extends StacklessException {
 
     public SweetNotFoundException(String message) {
         super(message);
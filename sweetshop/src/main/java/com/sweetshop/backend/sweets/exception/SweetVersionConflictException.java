@@ -0,0 +1,13 @@
+package com.sweetshop.backend.sweets.exception;
+
+import com.sweetshop.backend.common.StacklessException;
+
+/**
+ * A conditional update whose expected version no longer matches the stored sweet.
+ */
+public class SweetVersionConflictException extends StacklessException {
+
+    public SweetVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,219 @@
+package com.sweetshop.backend.sweets.facets;
+
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Per-category summary of the catalog (count, price range, units and value in stock) kept current by
+ * {@link SweetChangedEvent}s, so a facet request costs O(categories) rather than a catalog scan.
+ * <p>
+ * Each sweet's last known contribution is remembered so an update or delete can be subtracted before the
+ * new state is added; a state older than the remembered one (events of concurrent writes can arrive out of
+ * order) is ignored. Like {@code SweetSearchIndex} it is loaded at startup and rebuilt periodically to pick
+ * up writes made by other nodes.
+ */
+@Component
+public class CategoryFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryFacetIndex.class);
+
+    private static final Comparator<CategoryFacet> BY_CATEGORY =
+            Comparator.comparing(CategoryFacet::getCategory, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final SweetRepository sweetRepository;
+    private final TaskExecutor taskExecutor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private FacetData data = new FacetData();
+    private List<SweetChangedEvent> changesDuringRebuild;
+    // Rendered lazily and dropped by every change
+    private volatile List<CategoryFacet> facets;
+    private volatile boolean ready;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public CategoryFacetIndex(SweetRepository sweetRepository,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.sweetRepository = sweetRepository;
+        this.taskExecutor = taskExecutor;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${sweetshop.facets.rebuild-interval:PT15M}",
+            initialDelayString = "${sweetshop.facets.rebuild-interval:PT15M}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            doRebuild();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void doRebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        FacetData fresh = new FacetData();
+        try (Stream<Sweet> sweets = sweetRepository.streamAll(null)) {
+            sweets.forEach(fresh::upsert);
+        } catch (RuntimeException ex) {
+            log.warn("Could not build the category facets: {}", ex.getMessage());
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(fresh::apply);
+            changesDuringRebuild = null;
+            data = fresh;
+            facets = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Category facets built for {} categories", fresh.byCategory.size());
+    }
+
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            data.apply(event);
+            facets = null;
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onSweetsChanged(SweetsChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (SweetChangedEvent change : event.getChanges()) {
+                data.apply(change);
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(change);
+                }
+            }
+            facets = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Facets of every category ordered by name, or empty if the summary is not loaded yet.
+     */
+    public Optional<List<CategoryFacet>> getFacets() {
+        if (!ready) {
+            return Optional.empty();
+        }
+        List<CategoryFacet> current = facets;
+        if (current != null) {
+            return Optional.of(current);
+        }
+        lock.readLock().lock();
+        try {
+            current = data.byCategory.values().stream()
+                    .map(CategoryTotals::toFacet)
+                    .sorted(BY_CATEGORY)
+                    .toList();
+            facets = current;
+            return Optional.of(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Contribution(String category, BigDecimal price, Integer quantity, Long version) {
+
+        boolean isNewerThan(Sweet sweet) {
+            return version != null && sweet.getVersion() != null && version > sweet.getVersion();
+        }
+    }
+
+    private static final class FacetData {
+
+        private final Map<String, Contribution> bySweet = new HashMap<>();
+        private final Map<String, CategoryTotals> byCategory = new HashMap<>();
+
+        void apply(SweetChangedEvent event) {
+            if (event.getSweet() == null) {
+                remove(event.getSweetId());
+            } else {
+                upsert(event.getSweet());
+            }
+        }
+
+        void upsert(Sweet sweet) {
+            Contribution current = bySweet.get(sweet.getId());
+            if (current != null && current.isNewerThan(sweet)) {
+                return;
+            }
+            remove(sweet.getId());
+            Contribution added = new Contribution(sweet.getCategory(), sweet.getPrice(), sweet.getQuantity(),
+                    sweet.getVersion());
+            bySweet.put(sweet.getId(), added);
+            byCategory.computeIfAbsent(added.category(), CategoryTotals::new).add(added.price(), added.quantity());
+        }
+
+        void remove(String sweetId) {
+            Contribution removed = bySweet.remove(sweetId);
+            if (removed == null) {
+                return;
+            }
+            CategoryTotals totals = byCategory.get(removed.category());
+            totals.remove(removed.price(), removed.quantity());
+            if (totals.isEmpty()) {
+                byCategory.remove(removed.category());
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.sweetshop.backend.sweets.facets;
+
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+
+import java.math.BigDecimal;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Running totals for one category that support removing a sweet as well as adding one. Prices are kept
+ * as a multiset, so the minimum and maximum stay exact when the cheapest or dearest sweet goes away.
+ */
+public class CategoryTotals {
+
+    private final String category;
+    private final NavigableMap<BigDecimal, Integer> prices = new TreeMap<>();
+    private long count;
+    private long unitsInStock;
+    private BigDecimal stockValue = BigDecimal.ZERO;
+
+    public CategoryTotals(String category) {
+        this.category = category;
+    }
+
+    public void add(BigDecimal price, Integer quantity) {
+        count++;
+        if (price != null) {
+            prices.merge(price, 1, Integer::sum);
+        }
+        if (quantity != null) {
+            unitsInStock += quantity;
+            if (price != null) {
+                stockValue = stockValue.add(price.multiply(BigDecimal.valueOf(quantity)));
+            }
+        }
+    }
+
+    public void remove(BigDecimal price, Integer quantity) {
+        count--;
+        if (price != null) {
+            prices.computeIfPresent(price, (key, occurrences) -> occurrences == 1 ? null : occurrences - 1);
+        }
+        if (quantity != null) {
+            unitsInStock -= quantity;
+            if (price != null) {
+                stockValue = stockValue.subtract(price.multiply(BigDecimal.valueOf(quantity)));
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public CategoryFacet toFacet() {
+        return new CategoryFacet(category, count,
+                prices.isEmpty() ? null : prices.firstKey(),
+                prices.isEmpty() ? null : prices.lastKey(),
+                unitsInStock, stockValue);
+    }
+}
@@ -0,0 +1,519 @@
+package com.sweetshop.backend.sweets.journal;
+
+import com.sweetshop.backend.storage.MappedLog;
+import com.sweetshop.backend.sweets.dto.InventoryEntry;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of every stock change, kept in a local {@link MappedLog} next to the sweets collection.
+ * <p>
+ * Appends only copy the record into the mapped segment, which already survives a crash of the JVM. A single
+ * committer thread then forces the log once for everything appended since its last pass, so concurrent
+ * purchases share one fsync (group commit). With {@code sweetshop.journal.sync-commit} a request waits for
+ * that fsync; otherwise a power loss can lose at most one commit interval of records.
+ * <p>
+ * Purchases and restocks record the amount they asked for, and every entry the version it wrote, so the
+ * quantity of a sweet follows its highest version even when events of concurrent writes arrive out of order.
+ * <p>
+ * Whenever the log moves on to a new segment, what the earlier segments add up to (quantity, version and recent
+ * history of each sweet) is written to a checkpoint and those segments are deleted. Startup and {@link #replay()}
+ * only read the newest checkpoint and the log after it. With an empty {@code sweetshop.journal.directory} the
+ * journal is disabled.
+ */
+@Component
+public class InventoryJournal implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryJournal.class);
+    private static final String LOG_NAME = "inventory";
+    private static final Pattern CHECKPOINT_PATTERN = Pattern.compile(LOG_NAME + "-checkpoint-(\\d+)\\.bin");
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+    private static final Duration COMMIT_WAIT = Duration.ofSeconds(5);
+
+    private final Path directory;
+    private final MappedLog journal;
+    private final long commitIntervalNanos;
+    private final boolean syncCommit;
+    private final int historySize;
+    private final Timer commitTimer;
+    private final DistributionSummary commitBatch;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    // Guarded by lock
+    private final Map<String, Stock> stock = new HashMap<>();
+    private final Map<String, Deque<InventoryEntry>> history = new HashMap<>();
+    private List<CompletableFuture<Void>> uncommitted = new ArrayList<>();
+    private Checkpoint pendingCheckpoint;
+    private long sequence;
+    private long segment;
+    private boolean running = true;
+    // Held while a checkpoint is written or read, so the segments it covers are not deleted under a reader
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    private final Thread committer;
+
+    public InventoryJournal(@Value("${sweetshop.journal.directory:data/journal}") String directory,
+                            @Value("${sweetshop.journal.segment-size:16MB}") DataSize segmentSize,
+                            @Value("${sweetshop.journal.commit-interval:5ms}") Duration commitInterval,
+                            @Value("${sweetshop.journal.sync-commit:false}") boolean syncCommit,
+                            @Value("${sweetshop.journal.history-size:100}") int historySize,
+                            MeterRegistry meterRegistry) {
+        this.directory = StringUtils.hasText(directory) ? Path.of(directory) : null;
+        this.journal = this.directory != null
+                ? MappedLog.open(this.directory, LOG_NAME, Math.toIntExact(segmentSize.toBytes()))
+                : null;
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.syncCommit = syncCommit;
+        this.historySize = historySize;
+        this.commitTimer = Timer.builder("sweetshop.journal.commit")
+                .description("Time to force a batch of inventory journal records to disk")
+                .register(meterRegistry);
+        this.commitBatch = DistributionSummary.builder("sweetshop.journal.commit.batch")
+                .description("Inventory journal records made durable by one fsync")
+                .register(meterRegistry);
+
+        if (journal == null) {
+            committer = null;
+            return;
+        }
+        Checkpoint checkpoint = readLatestCheckpoint(true);
+        long fromSegment = 1;
+        if (checkpoint != null) {
+            sequence = checkpoint.sequence();
+            stock.putAll(checkpoint.stock());
+            checkpoint.history().forEach((sweetId, entries) -> history.put(sweetId, new ArrayDeque<>(entries)));
+            fromSegment = checkpoint.segment();
+        }
+        journal.replay(fromSegment, payload -> remember(decode(payload)));
+        segment = journal.currentSequence();
+        log.info("Inventory journal recovered {} records for {} sweets from checkpoint {}", sequence, stock.size(),
+                fromSegment);
+        committer = new Thread(this::commitLoop, "inventory-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (journal == null) {
+            return;
+        }
+        CompletableFuture<Void> committed = record(event);
+        if (syncCommit && committed != null) {
+            awaitCommit(committed, event.getSweetId());
+        }
+    }
+
+    // Commits complete in sequence order, so a batch only waits for the last entry it recorded
+    @EventListener
+    public void onSweetsChanged(SweetsChangedEvent event) {
+        if (journal == null) {
+            return;
+        }
+        CompletableFuture<Void> last = null;
+        String lastSweetId = null;
+        for (SweetChangedEvent change : event.getChanges()) {
+            CompletableFuture<Void> committed = record(change);
+            if (committed != null) {
+                last = committed;
+                lastSweetId = change.getSweetId();
+            }
+        }
+        if (syncCommit && last != null) {
+            awaitCommit(last, lastSweetId);
+        }
+    }
+
+    private CompletableFuture<Void> record(SweetChangedEvent event) {
+        Sweet sweet = event.getSweet();
+        return record(event.getType(), event.getSweetId(), sweet == null ? null : sweet.getQuantity(),
+                sweet == null ? null : sweet.getVersion(), event.getQuantityChange());
+    }
+
+    /**
+     * Most recent journal entries of a sweet, newest first. Only the last {@code sweetshop.journal.history-size}
+     * entries per sweet are kept, in memory and in checkpoints.
+     */
+    public List<InventoryEntry> history(String sweetId, int limit) {
+        lock.lock();
+        try {
+            Deque<InventoryEntry> entries = history.get(sweetId);
+            if (entries == null) {
+                return List.of();
+            }
+            List<InventoryEntry> newestFirst = new ArrayList<>(Math.min(limit, entries.size()));
+            Iterator<InventoryEntry> iterator = entries.descendingIterator();
+            while (iterator.hasNext() && newestFirst.size() < limit) {
+                newestFirst.add(iterator.next());
+            }
+            return newestFirst;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the quantity of every sweet that is still in the catalog from the newest checkpoint on disk and
+     * the log written after it.
+     */
+    public Map<String, Integer> replay() {
+        if (journal == null) {
+            return Map.of();
+        }
+        Map<String, Stock> replayed = new HashMap<>();
+        checkpointLock.lock();
+        try {
+            Checkpoint checkpoint = readLatestCheckpoint(false);
+            if (checkpoint != null) {
+                replayed.putAll(checkpoint.stock());
+            }
+            long fromSegment = checkpoint == null ? 1 : checkpoint.segment();
+            journal.replay(fromSegment, payload -> advance(replayed, decode(payload)));
+        } finally {
+            checkpointLock.unlock();
+        }
+        Map<String, Integer> quantities = new HashMap<>();
+        replayed.forEach((sweetId, current) -> quantities.put(sweetId, current.quantity()));
+        return quantities;
+    }
+
+    @Override
+    public void destroy() {
+        if (journal == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            running = false;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join(COMMIT_WAIT.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    // Returns null when the change left the stock level as it was, e.g. an edit of the name
+    private CompletableFuture<Void> record(SweetChangedEvent.Type type, String sweetId, Integer quantity,
+                                           Long version, Integer requestedChange) {
+        lock.lock();
+        try {
+            if (!running) {
+                return null;
+            }
+            Stock previous = stock.get(sweetId);
+            if (type == SweetChangedEvent.Type.UPDATED && previous != null
+                    && Integer.valueOf(previous.quantity()).equals(quantity)) {
+                return null;
+            }
+            Integer change = requestedChange != null ? requestedChange : difference(previous, quantity, version);
+            InventoryEntry entry = new InventoryEntry(sequence + 1, sweetId, type.name(), change, quantity, version,
+                    Instant.now());
+            long appendedTo = journal.append(encode(entry));
+            if (appendedTo != segment) {
+                // The earlier segments are complete and forced, and hold exactly the state before this entry
+                pendingCheckpoint = new Checkpoint(appendedTo, sequence, Map.copyOf(stock), copyHistory());
+                segment = appendedTo;
+            }
+            remember(entry);
+
+            CompletableFuture<Void> committed = new CompletableFuture<>();
+            uncommitted.add(committed);
+            appended.signal();
+            return committed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Null when the previous quantity is unknown or belongs to a later write than this one
+    private static Integer difference(Stock previous, Integer quantity, Long version) {
+        if (previous == null || quantity == null || previous.isNewerThan(version)) {
+            return null;
+        }
+        return quantity - previous.quantity();
+    }
+
+    // Caller holds the lock, or is the constructor replaying the log
+    private void remember(InventoryEntry entry) {
+        sequence = entry.getSequence();
+        advance(stock, entry);
+        if (entry.getQuantity() == null) {
+            history.remove(entry.getSweetId());
+            return;
+        }
+        Deque<InventoryEntry> entries = history.computeIfAbsent(entry.getSweetId(), id -> new ArrayDeque<>());
+        while (entries.size() >= historySize) {
+            entries.removeFirst();
+        }
+        entries.addLast(entry);
+    }
+
+    // A delete always applies; otherwise the state with the highest version wins
+    private static void advance(Map<String, Stock> stock, InventoryEntry entry) {
+        if (entry.getQuantity() == null) {
+            stock.remove(entry.getSweetId());
+            return;
+        }
+        stock.merge(entry.getSweetId(), new Stock(entry.getQuantity(), entry.getVersion()),
+                (current, next) -> current.isNewerThan(next.version()) ? current : next);
+    }
+
+    private Map<String, List<InventoryEntry>> copyHistory() {
+        Map<String, List<InventoryEntry>> copy = new HashMap<>();
+        history.forEach((sweetId, entries) -> copy.put(sweetId, List.copyOf(entries)));
+        return copy;
+    }
+
+    private void commitLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (running && uncommitted.isEmpty()) {
+                    appended.awaitUninterruptibly();
+                }
+                if (!running && uncommitted.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Give concurrent writers a moment to join this batch
+            if (commitIntervalNanos > 0) {
+                LockSupport.parkNanos(commitIntervalNanos);
+            }
+
+            List<CompletableFuture<Void>> batch;
+            Checkpoint checkpoint;
+            lock.lock();
+            try {
+                batch = uncommitted;
+                uncommitted = new ArrayList<>();
+                checkpoint = pendingCheckpoint;
+                pendingCheckpoint = null;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                commitTimer.record(journal::force);
+                commitBatch.record(batch.size());
+                batch.forEach(committed -> committed.complete(null));
+            } catch (RuntimeException ex) {
+                log.warn("Could not force the inventory journal: {}", ex.getMessage());
+                batch.forEach(committed -> committed.completeExceptionally(ex));
+            }
+            if (checkpoint != null) {
+                writeCheckpoint(checkpoint);
+            }
+        }
+    }
+
+    // [sequence][sweet count], then per sweet [id][quantity][version][history count] and each history entry as
+    // [length][record]; the segments before the checkpoint's are deleted once it is in place
+    private void writeCheckpoint(Checkpoint checkpoint) {
+        Path target = checkpointPath(checkpoint.segment());
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        checkpointLock.lock();
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)));
+                out.writeLong(checkpoint.sequence());
+                out.writeInt(checkpoint.stock().size());
+                for (Map.Entry<String, Stock> entry : checkpoint.stock().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().quantity());
+                    out.writeLong(entry.getValue().version() == null ? NO_VERSION : entry.getValue().version());
+                    List<InventoryEntry> entries = checkpoint.history().getOrDefault(entry.getKey(), List.of());
+                    out.writeInt(entries.size());
+                    for (InventoryEntry historyEntry : entries) {
+                        byte[] record = encode(historyEntry);
+                        out.writeInt(record.length);
+                        out.write(record);
+                    }
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            journal.deleteSegmentsBefore(checkpoint.segment());
+            for (long existing : checkpointSegments()) {
+                if (existing < checkpoint.segment()) {
+                    Files.deleteIfExists(checkpointPath(existing));
+                }
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            log.warn("Could not checkpoint the inventory journal: {}", ex.getMessage());
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    // Null when there is none yet; without history the entries are skipped
+    private Checkpoint readLatestCheckpoint(boolean withHistory) {
+        List<Long> segments = checkpointSegments();
+        if (segments.isEmpty()) {
+            return null;
+        }
+        long checkpointSegment = segments.get(segments.size() - 1);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(checkpointPath(checkpointSegment))))) {
+            long checkpointSequence = in.readLong();
+            int sweets = in.readInt();
+            Map<String, Stock> checkpointStock = new HashMap<>();
+            Map<String, List<InventoryEntry>> checkpointHistory = new HashMap<>();
+            for (int i = 0; i < sweets; i++) {
+                String sweetId = in.readUTF();
+                int quantity = in.readInt();
+                long version = in.readLong();
+                checkpointStock.put(sweetId, new Stock(quantity, version == NO_VERSION ? null : version));
+                int entries = in.readInt();
+                List<InventoryEntry> sweetHistory = new ArrayList<>(withHistory ? entries : 0);
+                for (int j = 0; j < entries; j++) {
+                    int length = in.readInt();
+                    if (withHistory) {
+                        sweetHistory.add(decode(in.readNBytes(length)));
+                    } else {
+                        in.skipNBytes(length);
+                    }
+                }
+                checkpointHistory.put(sweetId, sweetHistory);
+            }
+            return new Checkpoint(checkpointSegment, checkpointSequence, checkpointStock, checkpointHistory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read inventory journal checkpoint " + checkpointSegment, ex);
+        }
+    }
+
+    private List<Long> checkpointSegments() {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = CHECKPOINT_PATTERN.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not list inventory journal checkpoints", ex);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path checkpointPath(long checkpointSegment) {
+        return directory.resolve(String.format("%s-checkpoint-%016d.bin", LOG_NAME, checkpointSegment));
+    }
+
+    private static void awaitCommit(CompletableFuture<Void> committed, String sweetId) {
+        try {
+            committed.get(COMMIT_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            log.warn("Stock change of sweet {} is journaled but not yet on disk: {}", sweetId, ex.getMessage());
+        }
+    }
+
+    // [sequence][recordedAt millis][version][change][quantity][type length][type][sweet id];
+    // NONE and NO_VERSION stand for null
+    private static byte[] encode(InventoryEntry entry) {
+        byte[] type = entry.getType().getBytes(StandardCharsets.US_ASCII);
+        byte[] sweetId = entry.getSweetId().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES * 3 + Integer.BYTES * 2 + 1 + type.length + sweetId.length)
+                .putLong(entry.getSequence())
+                .putLong(entry.getRecordedAt().toEpochMilli())
+                .putLong(entry.getVersion() == null ? NO_VERSION : entry.getVersion())
+                .putInt(entry.getChange() == null ? NONE : entry.getChange())
+                .putInt(entry.getQuantity() == null ? NONE : entry.getQuantity())
+                .put((byte) type.length)
+                .put(type)
+                .put(sweetId)
+                .array();
+    }
+
+    private static InventoryEntry decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long sequence = buffer.getLong();
+        Instant recordedAt = Instant.ofEpochMilli(buffer.getLong());
+        long version = buffer.getLong();
+        int change = buffer.getInt();
+        int quantity = buffer.getInt();
+        byte[] type = new byte[buffer.get()];
+        buffer.get(type);
+        String sweetId = new String(payload, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+        return new InventoryEntry(sequence, sweetId, new String(type, StandardCharsets.US_ASCII),
+                change == NONE ? null : change, quantity == NONE ? null : quantity,
+                version == NO_VERSION ? null : version, recordedAt);
+    }
+
+    private record Stock(int quantity, Long version) {
+
+        boolean isNewerThan(Long other) {
+            return version != null && other != null && version > other;
+        }
+    }
+
+    // What the log segments before segment add up to; sequence is the last entry they hold
+    private record Checkpoint(long segment, long sequence, Map<String, Stock> stock,
+                              Map<String, List<InventoryEntry>> history) {
+    }
+}
@@ -4,11 +4,23 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Document(collection = "sweets")
+@CompoundIndex(name = "category_price", def = "{ 'category': 1, 'price': 1 }",
+        collation = "{ 'locale': 'en', 'strength': 2 }")
+@CompoundIndex(name = "category_id", def = "{ 'category': 1, '_id': 1 }",
+        collation = "{ 'locale': 'en', 'strength': 2 }")
+@CompoundIndex(name = "price_name", def = "{ 'price': 1, 'name': 1 }")
 public class Sweet {
 
     @Id
@@ -22,12 +34,22 @@ public class Sweet {
 
     @NotNull(message = "Price is required")
     @Min(value = 0, message = "Price must be positive")
+    // Stored as a number, not the default string, so range filters compare numerically and can use an index
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal price;
 
     @NotNull(message = "Quantity is required")
     @Min(value = 0, message = "Quantity must be non-negative")
     private Integer quantity;
 
+    @LastModifiedDate
+    @Indexed(name = "updatedAt")
+    private Instant updatedAt;
+
+    // Incremented by every write, including the stock updates in SweetRepositoryCustomImpl
+    @Version
+    private Long version;
+
     public Sweet() {
     }
 
@@ -78,4 +100,20 @@ public class Sweet {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
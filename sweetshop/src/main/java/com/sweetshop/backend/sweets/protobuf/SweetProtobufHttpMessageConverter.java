@@ -0,0 +1,175 @@
+package com.sweetshop.backend.sweets.protobuf;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.sweetshop.backend.sweets.dto.SweetPage;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Writes sweets as the protobuf messages in {@code src/main/proto/sweet.proto}: a {@link Sweet} as a
+ * {@code Sweet} message, and a list of sweets or a {@link SweetPage} as a {@code SweetList}.
+ * <p>
+ * The wire format is written field by field with {@link CodedOutputStream}, so no generated classes and no
+ * intermediate message objects are needed. Responses are write-only; requests are still read as JSON.
+ */
+public class SweetProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = MediaType.parseMediaType("application/x-protobuf");
+
+    private static final int SWEET_ID = 1;
+    private static final int SWEET_NAME = 2;
+    private static final int SWEET_CATEGORY = 3;
+    private static final int SWEET_PRICE = 4;
+    private static final int SWEET_QUANTITY = 5;
+    private static final int SWEET_UPDATED_AT = 6;
+    private static final int SWEET_VERSION = 7;
+    private static final int DECIMAL_UNSCALED = 1;
+    private static final int DECIMAL_SCALE = 2;
+    private static final int LIST_ITEMS = 1;
+    private static final int LIST_NEXT = 2;
+
+    public SweetProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Sweet.class == clazz || SweetPage.class == clazz || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    // Lists declared with another element type (facets, suggestions) are left to the other converters;
+    // a ResponseEntity<?> carries no element type, and the handlers returning one only put sweets in it
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(clazz, mediaType)) {
+            return false;
+        }
+        if (type == null || !List.class.isAssignableFrom(clazz)) {
+            return true;
+        }
+        Class<?> element = ResolvableType.forType(type).asCollection().resolveGeneric(0);
+        return element == null || element == Sweet.class;
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputMessage.getBody());
+        if (body instanceof Sweet sweet) {
+            writeSweet(out, sweet);
+        } else if (body instanceof SweetPage page) {
+            writeItems(out, page.getItems());
+            if (page.getNext() != null) {
+                out.writeString(LIST_NEXT, page.getNext());
+            }
+        } else {
+            writeItems(out, (List<?>) body);
+        }
+        out.flush();
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        return readInternal(null, inputMessage);
+    }
+
+    private static void writeItems(CodedOutputStream out, List<?> items) throws IOException {
+        for (Object item : items) {
+            if (!(item instanceof Sweet sweet)) {
+                throw new HttpMessageNotWritableException("Cannot write " + item.getClass().getName() + " as protobuf");
+            }
+            out.writeTag(LIST_ITEMS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(sweetSize(sweet));
+            writeSweet(out, sweet);
+        }
+    }
+
+    private static void writeSweet(CodedOutputStream out, Sweet sweet) throws IOException {
+        if (sweet.getId() != null) {
+            out.writeString(SWEET_ID, sweet.getId());
+        }
+        if (sweet.getName() != null) {
+            out.writeString(SWEET_NAME, sweet.getName());
+        }
+        if (sweet.getCategory() != null) {
+            out.writeString(SWEET_CATEGORY, sweet.getCategory());
+        }
+        if (sweet.getPrice() != null) {
+            BigDecimal price = sweet.getPrice();
+            out.writeTag(SWEET_PRICE, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(decimalSize(price));
+            out.writeByteArray(DECIMAL_UNSCALED, price.unscaledValue().toByteArray());
+            out.writeInt32(DECIMAL_SCALE, price.scale());
+        }
+        if (sweet.getQuantity() != null) {
+            out.writeInt32(SWEET_QUANTITY, sweet.getQuantity());
+        }
+        if (sweet.getUpdatedAt() != null) {
+            out.writeInt64(SWEET_UPDATED_AT, sweet.getUpdatedAt().toEpochMilli());
+        }
+        if (sweet.getVersion() != null) {
+            out.writeInt64(SWEET_VERSION, sweet.getVersion());
+        }
+    }
+
+    // Embedded messages are length-prefixed, so their size is worked out before they are written
+    private static int sweetSize(Sweet sweet) {
+        int size = 0;
+        if (sweet.getId() != null) {
+            size += CodedOutputStream.computeStringSize(SWEET_ID, sweet.getId());
+        }
+        if (sweet.getName() != null) {
+            size += CodedOutputStream.computeStringSize(SWEET_NAME, sweet.getName());
+        }
+        if (sweet.getCategory() != null) {
+            size += CodedOutputStream.computeStringSize(SWEET_CATEGORY, sweet.getCategory());
+        }
+        if (sweet.getPrice() != null) {
+            int priceSize = decimalSize(sweet.getPrice());
+            size += CodedOutputStream.computeTagSize(SWEET_PRICE) + CodedOutputStream.computeUInt32SizeNoTag(priceSize)
+                    + priceSize;
+        }
+        if (sweet.getQuantity() != null) {
+            size += CodedOutputStream.computeInt32Size(SWEET_QUANTITY, sweet.getQuantity());
+        }
+        if (sweet.getUpdatedAt() != null) {
+            size += CodedOutputStream.computeInt64Size(SWEET_UPDATED_AT, sweet.getUpdatedAt().toEpochMilli());
+        }
+        if (sweet.getVersion() != null) {
+            size += CodedOutputStream.computeInt64Size(SWEET_VERSION, sweet.getVersion());
+        }
+        return size;
+    }
+
+    // The unscaled value is written as big-endian two's-complement bytes, so prices of any precision fit
+    private static int decimalSize(BigDecimal value) {
+        return CodedOutputStream.computeByteArraySize(DECIMAL_UNSCALED, value.unscaledValue().toByteArray())
+                + CodedOutputStream.computeInt32Size(DECIMAL_SCALE, value.scale());
+    }
+}
@@ -0,0 +1,218 @@
+package com.sweetshop.backend.sweets.repository;
+
+import com.sweetshop.backend.storage.EntityMapping;
+import com.sweetshop.backend.storage.InMemoryMongoRepository;
+import com.sweetshop.backend.storage.InMemoryStorage;
+import com.sweetshop.backend.storage.SecondaryIndex;
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.facets.CategoryTotals;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link SweetRepository} served from process memory for the {@code inmemory} profile. Filters are answered
+ * from secondary indexes on name, category and price, with the same case-insensitive semantics as the Mongo
+ * queries in {@link SweetRepositoryCustomImpl}.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemorySweetRepository extends InMemoryMongoRepository<Sweet> implements SweetRepository {
+
+    private final SecondaryIndex<Sweet, String> nameIndex;
+    private final SecondaryIndex<Sweet, String> categoryIndex;
+    private final SecondaryIndex<Sweet, BigDecimal> priceIndex;
+
+    public InMemorySweetRepository(InMemoryStorage storage) {
+        super(storage.open("sweets", EntityMapping.of(Sweet.class, Sweet::getId, Sweet::setId,
+                InMemorySweetRepository::copy)), Sweet::getVersion);
+        this.nameIndex = store.addIndex("name", sweet -> lowerCase(sweet.getName()));
+        this.categoryIndex = store.addIndex("category", sweet -> lowerCase(sweet.getCategory()));
+        this.priceIndex = store.addIndex("price", Sweet::getPrice);
+        store.recover();
+    }
+
+    @Override
+    protected Sweet beforeSave(Sweet sweet) {
+        sweet.setVersion(sweet.getVersion() == null ? 0 : sweet.getVersion() + 1);
+        sweet.setUpdatedAt(Instant.now());
+        return sweet;
+    }
+
+    @Override
+    protected String idOf(Sweet sweet) {
+        return sweet.getId();
+    }
+
+    @Override
+    public Optional<Sweet> decrementQuantity(String id, int amount) {
+        return store.update(id, decrement(amount));
+    }
+
+    @Override
+    public Optional<Sweet> incrementQuantity(String id, int amount) {
+        return store.update(id, sweet -> {
+            int quantity = sweet.getQuantity() == null ? 0 : sweet.getQuantity();
+            sweet.setQuantity(quantity + amount);
+            return touched(sweet);
+        });
+    }
+
+    @Override
+    public Optional<List<Sweet>> decrementQuantities(Map<String, Integer> amountsById) {
+        Map<String, UnaryOperator<Sweet>> changes = amountsById.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> decrement(entry.getValue())));
+        return store.updateAll(changes);
+    }
+
+    @Override
+    public Optional<Sweet> updateDetails(String id, Sweet changes, Long expectedVersion) {
+        return store.update(id, sweet -> {
+            if (expectedVersion != null && !expectedVersion.equals(sweet.getVersion())) {
+                return null;
+            }
+            sweet.setName(changes.getName());
+            sweet.setCategory(changes.getCategory());
+            sweet.setPrice(changes.getPrice());
+            sweet.setQuantity(changes.getQuantity());
+            return touched(sweet);
+        });
+    }
+
+    @Override
+    public List<Sweet> search(SweetSearchCriteria criteria) {
+        return store.getAll(candidates(criteria)).stream()
+                .filter(matches(criteria))
+                .toList();
+    }
+
+    @Override
+    public List<Sweet> findPage(SweetSearchCriteria criteria, String afterId, int limit) {
+        Stream<Sweet> sweets = criteria.isEmpty()
+                ? store.after(afterId)
+                : search(criteria).stream().filter(sweet -> afterId == null || sweet.getId().compareTo(afterId) > 0);
+        return sweets.limit(limit).toList();
+    }
+
+    @Override
+    public Stream<Sweet> streamAll(Instant updatedSince) {
+        if (updatedSince == null) {
+            return store.all();
+        }
+        return store.all()
+                .filter(sweet -> sweet.getUpdatedAt() != null && !sweet.getUpdatedAt().isBefore(updatedSince))
+                .sorted(Comparator.comparing(Sweet::getUpdatedAt));
+    }
+
+    @Override
+    public List<CategoryFacet> aggregateCategoryFacets() {
+        Map<String, CategoryTotals> byCategory = new HashMap<>();
+        store.all().forEach(sweet -> byCategory.computeIfAbsent(sweet.getCategory(), CategoryTotals::new)
+                .add(sweet.getPrice(), sweet.getQuantity()));
+        return byCategory.values().stream()
+                .map(CategoryTotals::toFacet)
+                .sorted(Comparator.comparing(CategoryFacet::getCategory, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    // Stamped the way the Mongo bulk write stamps them; versions are read and the batch stored as one logged write
+    // under the store's lock, so a concurrent update cannot be overwritten with a stale version
+    @Override
+    public SweetImportResult importSweets(List<Sweet> sweets) {
+        Instant now = Instant.now();
+        for (Sweet sweet : sweets) {
+            // New sweets start at 0; the others are versioned from the stored sweet inside the merge
+            sweet.setVersion(sweet.getId() == null ? 0L : null);
+            sweet.setUpdatedAt(now);
+        }
+        Set<Sweet> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        store.mergeAll(sweets, (current, incoming) -> {
+            if (current == null) {
+                created.add(incoming);
+            }
+            if (incoming.getVersion() == null) {
+                Long version = current == null ? null : current.getVersion();
+                incoming.setVersion(version == null ? 1 : version + 1);
+            }
+            return incoming;
+        });
+        Set<Integer> createdIndexes = new HashSet<>();
+        for (int i = 0; i < sweets.size(); i++) {
+            if (created.contains(sweets.get(i))) {
+                createdIndexes.add(i);
+            }
+        }
+        return new SweetImportResult(createdIndexes, Map.of());
+    }
+
+    // Starts from the most selective filter; the full predicate is applied to the candidates afterwards
+    private Set<String> candidates(SweetSearchCriteria criteria) {
+        if (criteria.getCategory() != null) {
+            return categoryIndex.equalTo(lowerCase(criteria.getCategory()));
+        }
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            return priceIndex.range(criteria.getMinPrice(), criteria.getMaxPrice());
+        }
+        if (criteria.getName() != null) {
+            String name = lowerCase(criteria.getName());
+            return nameIndex.matching(key -> key.contains(name));
+        }
+        return store.all().map(Sweet::getId).collect(Collectors.toSet());
+    }
+
+    private static Predicate<Sweet> matches(SweetSearchCriteria criteria) {
+        String name = lowerCase(criteria.getName());
+        String category = lowerCase(criteria.getCategory());
+        return sweet -> (category == null || category.equals(lowerCase(sweet.getCategory())))
+                && (criteria.getMinPrice() == null
+                        || sweet.getPrice() != null && sweet.getPrice().compareTo(criteria.getMinPrice()) >= 0)
+                && (criteria.getMaxPrice() == null
+                        || sweet.getPrice() != null && sweet.getPrice().compareTo(criteria.getMaxPrice()) <= 0)
+                && (name == null || sweet.getName() != null && lowerCase(sweet.getName()).contains(name));
+    }
+
+    private static UnaryOperator<Sweet> decrement(int amount) {
+        return sweet -> {
+            if (sweet.getQuantity() == null || sweet.getQuantity() < amount) {
+                return null;
+            }
+            sweet.setQuantity(sweet.getQuantity() - amount);
+            return touched(sweet);
+        };
+    }
+
+    // Same bookkeeping as the $inc/$set of every update in SweetRepositoryCustomImpl
+    private static Sweet touched(Sweet sweet) {
+        sweet.setVersion(sweet.getVersion() == null ? 1 : sweet.getVersion() + 1);
+        sweet.setUpdatedAt(Instant.now());
+        return sweet;
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Sweet copy(Sweet sweet) {
+        Sweet copy = new Sweet(sweet.getId(), sweet.getName(), sweet.getCategory(), sweet.getPrice(), sweet.getQuantity());
+        copy.setUpdatedAt(sweet.getUpdatedAt());
+        copy.setVersion(sweet.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sweetshop.backend.sweets.repository;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What {@link SweetRepositoryCustom#importSweets} did with each sweet of a batch, keyed by its position.
+ */
+public class SweetImportResult {
+
+    private final Set<Integer> created;
+    private final Map<Integer, String> failures;
+
+    public SweetImportResult(Set<Integer> created, Map<Integer, String> failures) {
+        this.created = Set.copyOf(created);
+        this.failures = Map.copyOf(failures);
+    }
+
+    /**
+     * Whether the sweet at {@code index} did not exist before, including one imported with an id that was unknown.
+     */
+    public boolean isCreated(int index) {
+        return created.contains(index);
+    }
+
+    /**
+     * The error of every sweet that could not be written.
+     */
+    public Map<Integer, String> getFailures() {
+        return failures;
+    }
+}
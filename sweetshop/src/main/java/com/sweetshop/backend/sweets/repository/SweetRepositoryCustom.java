@@ -0,0 +1,69 @@
+package com.sweetshop.backend.sweets.repository;
+
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.model.Sweet;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface SweetRepositoryCustom {
+
+    /**
+     * Atomically decrements the stock of a sweet, but only if at least {@code amount} units are available.
+     * Returns the updated document, or empty if the sweet does not exist or has insufficient stock.
+     */
+    Optional<Sweet> decrementQuantity(String id, int amount);
+
+    /**
+     * Atomically increments the stock of a sweet and returns the updated document,
+     * or empty if the sweet does not exist.
+     */
+    Optional<Sweet> incrementQuantity(String id, int amount);
+
+    /**
+     * Decrements the stock of every sweet in {@code amountsById} in a single bulk write inside one transaction.
+     * Either every line is applied and the updated documents are returned, or nothing is applied and the
+     * result is empty.
+     */
+    Optional<List<Sweet>> decrementQuantities(Map<String, Integer> amountsById);
+
+    /**
+     * Replaces the editable fields of a sweet with those of {@code changes} and bumps its version, but only if
+     * the stored version still equals {@code expectedVersion} (any version when it is null). Returns the updated
+     * document, or empty if the sweet does not exist or has moved on to another version.
+     */
+    Optional<Sweet> updateDetails(String id, Sweet changes, Long expectedVersion);
+
+    /**
+     * Runs every filter set on {@code criteria} as one query on the server.
+     */
+    List<Sweet> search(SweetSearchCriteria criteria);
+
+    /**
+     * Keyset page of sweets matching {@code criteria}, ordered by id and starting strictly after
+     * {@code afterId} (or at the beginning when it is null). Cost does not depend on how deep the page is.
+     */
+    List<Sweet> findPage(SweetSearchCriteria criteria, String afterId, int limit);
+
+    /**
+     * Streams sweets from a server-side cursor, optionally only those modified at or after {@code updatedSince}.
+     * The returned stream holds the cursor open and must be closed by the caller.
+     */
+    Stream<Sweet> streamAll(Instant updatedSince);
+
+    /**
+     * Computes the per-category facets of the whole catalog on the server, ordered by category.
+     */
+    List<CategoryFacet> aggregateCategoryFacets();
+
+    /**
+     * Writes {@code sweets} in one unordered bulk write. A sweet with an id has its editable fields replaced, and
+     * is created under that id when missing; one without an id gets a new id assigned in place and is inserted.
+     * Reports, by position in {@code sweets}, which sweets were created and the error of each one that could not
+     * be written.
+     */
+    SweetImportResult importSweets(List<Sweet> sweets);
+}
@@ -0,0 +1,236 @@
+package com.sweetshop.backend.sweets.repository;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SweetRepositoryCustomImpl implements SweetRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final int MAX_TRANSACTION_ATTEMPTS = 3;
+    private static final int WRITE_CONFLICT = 112;
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public SweetRepositoryCustomImpl(MongoTemplate mongoTemplate, MongoTransactionManager transactionManager) {
+        this.mongoTemplate = mongoTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Optional<Sweet> decrementQuantity(String id, int amount) {
+        Query query = new Query(Criteria.where("id").is(id).and("quantity").gte(amount));
+        Update update = new Update().inc("quantity", -amount).inc("version", 1).set("updatedAt", new Date());
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, RETURN_NEW, Sweet.class));
+    }
+
+    @Override
+    public Optional<Sweet> incrementQuantity(String id, int amount) {
+        Query query = new Query(Criteria.where("id").is(id));
+        // $inc rejects a null quantity, so treat a missing stock level as zero
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("quantity").toValue(ArithmeticOperators.Add
+                        .valueOf(ConditionalOperators.ifNull("quantity").then(0))
+                        .add(amount))
+                .set("version").toValue(ArithmeticOperators.Add
+                        .valueOf(ConditionalOperators.ifNull("version").then(0))
+                        .add(1))
+                .set("updatedAt").toValue(new Date());
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, RETURN_NEW, Sweet.class));
+    }
+
+    // Baskets that share a sweet conflict inside their transactions; the server aborts the loser, which can
+    // simply run again. An unknown commit result is not retried, as the first attempt may have been applied.
+    @Override
+    public Optional<List<Sweet>> decrementQuantities(Map<String, Integer> amountsById) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Sweet.class);
+                    amountsById.forEach((id, amount) -> bulk.updateOne(
+                            new Query(Criteria.where("id").is(id).and("quantity").gte(amount)),
+                            new Update().inc("quantity", -amount).inc("version", 1).set("updatedAt", new Date())));
+
+                    if (bulk.execute().getModifiedCount() != amountsById.size()) {
+                        status.setRollbackOnly();
+                        return Optional.empty();
+                    }
+                    return Optional.of(mongoTemplate.find(
+                            new Query(Criteria.where("id").in(amountsById.keySet())), Sweet.class));
+                });
+            } catch (RuntimeException ex) {
+                if (attempt >= MAX_TRANSACTION_ATTEMPTS || !isTransientTransactionError(ex)) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private static boolean isTransientTransactionError(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo
+                    && (mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                    || mongo.getCode() == WRITE_CONFLICT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Optional<Sweet> updateDetails(String id, Sweet changes, Long expectedVersion) {
+        Criteria criteria = Criteria.where("id").is(id);
+        if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        Update update = new Update()
+                .set("name", changes.getName())
+                .set("category", changes.getCategory())
+                .set("price", changes.getPrice())
+                .set("quantity", changes.getQuantity())
+                .inc("version", 1)
+                .set("updatedAt", new Date());
+        return Optional.ofNullable(mongoTemplate.findAndModify(new Query(criteria), update, RETURN_NEW, Sweet.class));
+    }
+
+    @Override
+    public List<Sweet> search(SweetSearchCriteria criteria) {
+        return mongoTemplate.find(criteria.toQuery(), Sweet.class);
+    }
+
+    @Override
+    public List<Sweet> findPage(SweetSearchCriteria criteria, String afterId, int limit) {
+        Query query = criteria.toQuery()
+                .with(Sort.by(Sort.Direction.ASC, "id"))
+                .limit(limit);
+        if (afterId != null) {
+            Object lastId = ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId;
+            query.addCriteria(Criteria.where("id").gt(lastId));
+        }
+        return mongoTemplate.find(query, Sweet.class);
+    }
+
+    @Override
+    public Stream<Sweet> streamAll(Instant updatedSince) {
+        Query query = new Query().cursorBatchSize(EXPORT_BATCH_SIZE);
+        if (updatedSince != null) {
+            query.addCriteria(Criteria.where("updatedAt").gte(updatedSince))
+                    .with(Sort.by(Sort.Direction.ASC, "updatedAt"));
+        }
+        return mongoTemplate.stream(query, Sweet.class);
+    }
+
+    @Override
+    public List<CategoryFacet> aggregateCategoryFacets() {
+        // $toDecimal also reads prices that have not been migrated from strings yet
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.project("category", "quantity")
+                        .and(ConvertOperators.valueOf("price").convertToDecimal()).as("price"),
+                Aggregation.group("category")
+                        .count().as("count")
+                        .min("price").as("minPrice")
+                        .max("price").as("maxPrice")
+                        .sum("quantity").as("unitsInStock")
+                        .sum(ArithmeticOperators.Multiply.valueOf("price").multiplyBy("quantity")).as("stockValue"),
+                Aggregation.sort(Sort.Direction.ASC, "_id"));
+        return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(Sweet.class), Document.class)
+                .getMappedResults().stream()
+                .map(facet -> new CategoryFacet(
+                        facet.getString("_id"),
+                        ((Number) facet.get("count")).longValue(),
+                        decimal(facet.get("minPrice")),
+                        decimal(facet.get("maxPrice")),
+                        ((Number) facet.get("unitsInStock")).longValue(),
+                        facet.get("stockValue") == null ? BigDecimal.ZERO : decimal(facet.get("stockValue"))))
+                .toList();
+    }
+
+    @Override
+    public SweetImportResult importSweets(List<Sweet> sweets) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Sweet.class);
+        Date now = new Date();
+        Set<Integer> inserts = new HashSet<>();
+        for (int i = 0; i < sweets.size(); i++) {
+            Sweet sweet = sweets.get(i);
+            if (sweet.getId() == null) {
+                inserts.add(i);
+                sweet.setId(new ObjectId().toHexString());
+                sweet.setVersion(0L);
+                sweet.setUpdatedAt(now.toInstant());
+                bulk.insert(sweet);
+            } else {
+                bulk.upsert(new Query(Criteria.where("id").is(sweet.getId())), new Update()
+                        .set("name", sweet.getName())
+                        .set("category", sweet.getCategory())
+                        .set("price", sweet.getPrice())
+                        .set("quantity", sweet.getQuantity())
+                        .inc("version", 1)
+                        .set("updatedAt", now));
+            }
+        }
+        BulkWriteResult result;
+        Map<Integer, String> failures;
+        try {
+            result = bulk.execute();
+            failures = Map.of();
+        } catch (BulkOperationException ex) {
+            result = ex.getResult();
+            failures = ex.getErrors().stream()
+                    .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage, (first, second) -> first));
+        }
+
+        // One operation per sweet, so an upsert's index is the sweet's position in the batch
+        Set<Integer> created = new HashSet<>();
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            created.add(upsert.getIndex());
+        }
+        for (int index : inserts) {
+            if (!failures.containsKey(index)) {
+                created.add(index);
+            }
+        }
+        return new SweetImportResult(created, failures);
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        return value == null ? null : new BigDecimal(value.toString());
+    }
+}
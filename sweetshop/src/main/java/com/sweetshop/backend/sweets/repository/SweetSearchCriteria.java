@@ -0,0 +1,98 @@
+package com.sweetshop.backend.sweets.repository;
+
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Combination of optional search filters that is translated into a single server-side Mongo query.
+ * Blank strings and null bounds are treated as "no filter".
+ */
+public class SweetSearchCriteria {
+
+    /**
+     * Case-insensitive collation shared by the category indexes on {@code Sweet}; a query must use the
+     * same collation for MongoDB to pick those indexes.
+     */
+    public static final Collation CASE_INSENSITIVE = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    private final String name;
+    private final String category;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+
+    public SweetSearchCriteria(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        this.name = name == null || name.isBlank() ? null : name.trim();
+        this.category = category == null || category.isBlank() ? null : category.trim();
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public boolean isEmpty() {
+        return name == null && category == null && minPrice == null && maxPrice == null;
+    }
+
+    public Query toQuery() {
+        Criteria criteria = new Criteria();
+        if (category != null) {
+            criteria.and("category").is(category);
+        }
+        if (minPrice != null || maxPrice != null) {
+            Criteria price = criteria.and("price");
+            if (minPrice != null) {
+                price.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                price.lte(maxPrice);
+            }
+        }
+        if (name != null) {
+            criteria.and("name").regex(Pattern.quote(name), "i");
+        }
+
+        Query query = new Query(criteria);
+        if (category != null) {
+            query.collation(CASE_INSENSITIVE);
+        }
+        return query;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SweetSearchCriteria other)) {
+            return false;
+        }
+        return Objects.equals(name, other.name)
+                && Objects.equals(category, other.category)
+                && Objects.equals(minPrice, other.minPrice)
+                && Objects.equals(maxPrice, other.maxPrice);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, category, minPrice, maxPrice);
+    }
+}
@@ -0,0 +1,424 @@
+package com.sweetshop.backend.sweets.search;
+
+import com.sweetshop.backend.sweets.dto.SweetSuggestion;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram and token index over sweet names and categories.
+ * <p>
+ * Serves prefix autocomplete and ranked typo-tolerant name search without touching MongoDB. It is loaded
+ * from the database at startup, kept current by {@link SweetChangedEvent}s and rebuilt every
+ * {@code sweetshop.search.rebuild-interval} so writes made by other nodes are picked up; until then results
+ * can lag those writes by up to that interval. {@code /search} therefore keeps querying MongoDB.
+ */
+@Component
+public class SweetSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SweetSearchIndex.class);
+
+    private static final int GRAM_LENGTH = 3;
+    private static final double MIN_RANKED_SCORE = 0.5;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final SweetRepository sweetRepository;
+    private final TaskExecutor taskExecutor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private IndexData data = new IndexData();
+    private List<SweetChangedEvent> changesDuringRebuild;
+    private volatile boolean ready;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public SweetSearchIndex(SweetRepository sweetRepository,
+                            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.sweetRepository = sweetRepository;
+        this.taskExecutor = taskExecutor;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${sweetshop.search.rebuild-interval:PT15M}",
+            initialDelayString = "${sweetshop.search.rebuild-interval:PT15M}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            doRebuild();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void doRebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndexData fresh = new IndexData();
+        try (Stream<Sweet> sweets = sweetRepository.streamAll(null)) {
+            sweets.forEach(fresh::upsert);
+        } catch (RuntimeException ex) {
+            log.warn("Could not build the sweet search index: {}", ex.getMessage());
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Writes that happened while we were reading are newer than what the cursor returned
+            changesDuringRebuild.forEach(fresh::apply);
+            changesDuringRebuild = null;
+            data = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Sweet search index built with {} sweets", fresh.size());
+    }
+
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getType() != SweetChangedEvent.Type.DELETED && alreadyIndexed(event.getSweet())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            data.apply(event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // An import batch is indexed under one exclusive lock instead of taking it once per sweet
+    @EventListener
+    public void onSweetsChanged(SweetsChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (SweetChangedEvent change : event.getChanges()) {
+                data.apply(change);
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(change);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Most writes are stock changes that leave name and category alone; they, and events older than the indexed
+    // state, are settled under the shared lock instead of reindexing the sweet under the exclusive one
+    private boolean alreadyIndexed(Sweet sweet) {
+        lock.readLock().lock();
+        try {
+            Entry entry = data.entry(sweet.getId());
+            if (changesDuringRebuild != null || entry == null) {
+                return false;
+            }
+            if (entry.isNewerThan(sweet)) {
+                return true;
+            }
+            if (!entry.indexes(sweet)) {
+                return false;
+            }
+            entry.advanceTo(sweet.getVersion());
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Autocomplete: sweets with a name or category word starting with the last word of {@code prefix},
+     * whose other words also prefix-match. Names that start with the whole prefix rank first, then shorter names.
+     */
+    public List<SweetSuggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return data.suggest(normalize(prefix), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked, typo-tolerant name search: candidates are scored by the fraction of the query's trigrams
+     * their name shares, so a missing or swapped letter still finds the sweet.
+     */
+    public List<String> rankedSearch(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return data.rankedSearch(normalize(query), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(text.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String[] tokens(String... texts) {
+        return Arrays.stream(texts)
+                .flatMap(TOKEN_SEPARATOR::splitAsStream)
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    // The version only moves forward; it is advanced under the shared lock, hence atomic
+    private record Entry(String id, String name, String category, String normalizedName,
+                         int gramCount, String[] tokens, AtomicLong version) {
+
+        boolean isNewerThan(Sweet sweet) {
+            return sweet.getVersion() != null && version.get() > sweet.getVersion();
+        }
+
+        boolean indexes(Sweet sweet) {
+            return Objects.equals(name, sweet.getName()) && Objects.equals(category, sweet.getCategory());
+        }
+
+        void advanceTo(Long newVersion) {
+            if (newVersion != null) {
+                version.accumulateAndGet(newVersion, Math::max);
+            }
+        }
+
+        boolean matchesAllTokenPrefixes(String[] queryTokens, int count) {
+            for (int i = 0; i < count; i++) {
+                String queryToken = queryTokens[i];
+                if (Arrays.stream(tokens).noneMatch(token -> token.startsWith(queryToken))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Scored(int ordinal, double score) {
+    }
+
+    /**
+     * The index structures proper; all access is serialised by the enclosing lock.
+     */
+    private static final class IndexData {
+
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        private final Map<String, Postings> grams = new HashMap<>();
+        private final NavigableMap<String, Postings> tokens = new TreeMap<>();
+
+        int size() {
+            return ordinals.size();
+        }
+
+        Entry entry(String id) {
+            Integer ordinal = ordinals.get(id);
+            return ordinal == null ? null : entries.get(ordinal);
+        }
+
+        // Events of concurrent writes can arrive out of order; an older state never replaces a newer one
+        void apply(SweetChangedEvent event) {
+            if (event.getType() == SweetChangedEvent.Type.DELETED) {
+                remove(event.getSweetId());
+                return;
+            }
+            Entry current = entry(event.getSweetId());
+            if (current == null || !current.isNewerThan(event.getSweet())) {
+                upsert(event.getSweet());
+            }
+        }
+
+        void upsert(Sweet sweet) {
+            remove(sweet.getId());
+            String normalizedName = normalize(sweet.getName());
+            Set<String> nameGrams = grams(" " + normalizedName + " ");
+            Entry entry = new Entry(sweet.getId(), sweet.getName(), sweet.getCategory(), normalizedName,
+                    nameGrams.size(), tokens(normalizedName, normalize(sweet.getCategory())),
+                    new AtomicLong(sweet.getVersion() == null ? Long.MIN_VALUE : sweet.getVersion()));
+
+            int ordinal = freeOrdinals.isEmpty() ? entries.size() : freeOrdinals.pop();
+            if (ordinal == entries.size()) {
+                entries.add(entry);
+            } else {
+                entries.set(ordinal, entry);
+            }
+            ordinals.put(entry.id(), ordinal);
+            for (String gram : nameGrams) {
+                grams.computeIfAbsent(gram, g -> new Postings()).add(ordinal);
+            }
+            for (String token : entry.tokens()) {
+                tokens.computeIfAbsent(token, t -> new Postings()).add(ordinal);
+            }
+        }
+
+        void remove(String id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            Entry entry = entries.get(ordinal);
+            for (String gram : grams(" " + entry.normalizedName() + " ")) {
+                removePosting(grams, gram, ordinal);
+            }
+            for (String token : entry.tokens()) {
+                removePosting(tokens, token, ordinal);
+            }
+            entries.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+        }
+
+        private static void removePosting(Map<String, Postings> postingsByKey, String key, int ordinal) {
+            Postings postings = postingsByKey.get(key);
+            if (postings != null) {
+                postings.remove(ordinal);
+                if (postings.isEmpty()) {
+                    postingsByKey.remove(key);
+                }
+            }
+        }
+
+        List<SweetSuggestion> suggest(String prefix, int limit) {
+            String[] queryTokens = tokens(prefix);
+            if (queryTokens.length == 0 || limit <= 0) {
+                return List.of();
+            }
+            String last = queryTokens[queryTokens.length - 1];
+            Comparator<Entry> ranking = Comparator
+                    .comparing((Entry entry) -> !entry.normalizedName().startsWith(prefix))
+                    .thenComparingInt(entry -> entry.normalizedName().length())
+                    .thenComparing(Entry::normalizedName);
+
+            // Max-heap on ranking keeps only the best `limit` candidates
+            PriorityQueue<Entry> best = new PriorityQueue<>(ranking.reversed());
+            Set<Integer> seen = new HashSet<>();
+            for (Postings postings : tokens.subMap(last, true, last + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < postings.size(); i++) {
+                    int ordinal = postings.get(i);
+                    if (!seen.add(ordinal)) {
+                        continue;
+                    }
+                    Entry entry = entries.get(ordinal);
+                    if (!entry.matchesAllTokenPrefixes(queryTokens, queryTokens.length - 1)) {
+                        continue;
+                    }
+                    best.add(entry);
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+
+            List<Entry> ranked = new ArrayList<>(best);
+            ranked.sort(ranking);
+            return ranked.stream()
+                    .map(entry -> new SweetSuggestion(entry.id(), entry.name(), entry.category()))
+                    .toList();
+        }
+
+        List<String> rankedSearch(String query, int limit) {
+            if (query.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            Set<String> queryGrams = grams(" " + query + " ");
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String gram : queryGrams) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    continue;
+                }
+                for (int i = 0; i < postings.size(); i++) {
+                    shared.merge(postings.get(i), 1, Integer::sum);
+                }
+            }
+
+            Comparator<Scored> ranking = Comparator.comparingDouble(Scored::score).reversed()
+                    .thenComparingInt(scored -> entries.get(scored.ordinal()).gramCount());
+            PriorityQueue<Scored> best = new PriorityQueue<>(ranking.reversed());
+            shared.forEach((ordinal, count) -> {
+                Entry entry = entries.get(ordinal);
+                double score = (double) count / queryGrams.size();
+                if (entry.normalizedName().contains(query)) {
+                    score += 1.0;
+                }
+                if (score < MIN_RANKED_SCORE) {
+                    return;
+                }
+                best.add(new Scored(ordinal, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+
+            List<Scored> ranked = new ArrayList<>(best);
+            ranked.sort(ranking);
+            return ranked.stream().map(scored -> entries.get(scored.ordinal()).id()).toList();
+        }
+    }
+}
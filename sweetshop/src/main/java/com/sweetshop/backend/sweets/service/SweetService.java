@@ -1,101 +1,198 @@
 package com.sweetshop.backend.sweets.service;
 
+import com.sweetshop.backend.sweets.cache.SweetCache;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.dto.PurchaseLine;
+import com.sweetshop.backend.sweets.dto.PurchaseLineResult;
+import com.sweetshop.backend.sweets.dto.PurchaseLineStatus;
+import com.sweetshop.backend.sweets.dto.SweetPage;
+import com.sweetshop.backend.sweets.dto.SweetSuggestion;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
 import com.sweetshop.backend.sweets.exception.InsufficientStockException;
+import com.sweetshop.backend.sweets.exception.InvalidQuantityException;
 import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.exception.SweetVersionConflictException;
+import com.sweetshop.backend.sweets.facets.CategoryFacetIndex;
 import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetImportResult;
 import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import com.sweetshop.backend.sweets.search.SweetSearchIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SweetService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private static final Object CATALOG_KEY = "catalog";
+
     private final SweetRepository sweetRepository;
+    private final SweetCache sweetCache;
+    private final SweetSearchIndex searchIndex;
+    private final CategoryFacetIndex facetIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PurchaseCounters singlePurchases;
+    private final PurchaseCounters batchPurchases;
 
-    public SweetService(SweetRepository sweetRepository) {
+    public SweetService(SweetRepository sweetRepository,
+                        SweetCache sweetCache,
+                        SweetSearchIndex searchIndex,
+                        CategoryFacetIndex facetIndex,
+                        ApplicationEventPublisher eventPublisher,
+                        MeterRegistry meterRegistry) {
         this.sweetRepository = sweetRepository;
+        this.sweetCache = sweetCache;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.eventPublisher = eventPublisher;
+        this.singlePurchases = new PurchaseCounters(meterRegistry, "single");
+        this.batchPurchases = new PurchaseCounters(meterRegistry, "batch");
     }
 
     public Sweet createSweet(Sweet sweet) {
         sweet.setId(null);
-        return sweetRepository.save(sweet);
+        sweet.setVersion(null);
+        Sweet created = sweetRepository.save(sweet);
+        written(SweetChangedEvent.Type.CREATED, created);
+        return created;
+    }
+
+    /**
+     * Writes one batch of a catalog import, see {@link SweetRepository#importSweets}. The sweets that were written
+     * are announced together as one {@link SweetsChangedEvent}.
+     */
+    public SweetImportResult importSweets(List<Sweet> sweets) {
+        SweetImportResult result = sweetRepository.importSweets(sweets);
+        Map<Integer, String> failures = result.getFailures();
+
+        // Re-read so events carry the stored version, which an upsert does not return
+        Set<String> writtenIds = new LinkedHashSet<>();
+        for (int i = 0; i < sweets.size(); i++) {
+            if (!failures.containsKey(i)) {
+                writtenIds.add(sweets.get(i).getId());
+            }
+        }
+        Map<String, Sweet> stored = sweetRepository.findAllById(writtenIds).stream()
+                .collect(Collectors.toMap(Sweet::getId, Function.identity()));
+        List<SweetChangedEvent> changes = new ArrayList<>();
+        for (int i = 0; i < sweets.size(); i++) {
+            Sweet sweet = failures.containsKey(i) ? null : stored.get(sweets.get(i).getId());
+            if (sweet != null) {
+                sweetCache.put(sweet);
+                changes.add(new SweetChangedEvent(
+                        result.isCreated(i) ? SweetChangedEvent.Type.CREATED : SweetChangedEvent.Type.UPDATED, sweet));
+            }
+        }
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new SweetsChangedEvent(changes));
+        }
+        return result;
     }
 
     public List<Sweet> getAllSweets() {
-        return sweetRepository.findAll();
+        return sweetCache.getQuery(CATALOG_KEY, sweetRepository::findAll);
     }
 
-    public List<Sweet> searchSweets(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
-        // If only name is provided, use repository method
-        if (name != null && !name.isBlank() && 
-            (category == null || category.isBlank()) && 
-            minPrice == null && maxPrice == null) {
-            return sweetRepository.findByNameContainingIgnoreCase(name);
-        }
-        
-        // If only category is provided, use repository method
-        if (category != null && !category.isBlank() && 
-            (name == null || name.isBlank()) && 
-            minPrice == null && maxPrice == null) {
-            return sweetRepository.findByCategoryIgnoreCase(category);
-        }
-        
-        // If only price range is provided, use repository method
-        if (minPrice != null && maxPrice != null && 
-            (name == null || name.isBlank()) && 
-            (category == null || category.isBlank())) {
-            return sweetRepository.findByPriceBetween(minPrice, maxPrice);
-        }
-        
-        // For complex queries, filter in memory
-        List<Sweet> results = sweetRepository.findAll();
-        List<Sweet> filtered = new java.util.ArrayList<>(results);
-        
-        // Apply name filter
-        if (name != null && !name.isBlank()) {
-            filtered.removeIf(sweet -> 
-                sweet.getName() == null || 
-                !sweet.getName().toLowerCase().contains(name.toLowerCase())
-            );
-        }
-        
-        // Apply category filter
-        if (category != null && !category.isBlank()) {
-            filtered.removeIf(sweet -> 
-                sweet.getCategory() == null || 
-                !sweet.getCategory().equalsIgnoreCase(category)
-            );
-        }
-        
-        // Apply price range filter
-        if (minPrice != null) {
-            filtered.removeIf(sweet -> 
-                sweet.getPrice() == null || 
-                sweet.getPrice().compareTo(minPrice) < 0
-            );
-        }
-        
-        if (maxPrice != null) {
-            filtered.removeIf(sweet -> 
-                sweet.getPrice() == null || 
-                sweet.getPrice().compareTo(maxPrice) > 0
-            );
-        }
-        
-        return filtered;
-    }
-
-    public Sweet updateSweet(String id, Sweet updated) {
-        Sweet existing = sweetRepository.findById(id)
+    public Sweet getSweet(String id) {
+        return sweetCache.getSweet(id, sweetRepository::findById)
                 .orElseThrow(() -> new SweetNotFoundException("Sweet not found: " + id));
-        existing.setName(updated.getName());
-        existing.setCategory(updated.getCategory());
-        existing.setPrice(updated.getPrice());
-        existing.setQuantity(updated.getQuantity());
-        return sweetRepository.save(existing);
+    }
+
+    /**
+     * Streams the catalog straight from a Mongo cursor; the caller must close the returned stream.
+     */
+    public Stream<Sweet> exportSweets(Instant updatedSince) {
+        return sweetRepository.streamAll(updatedSince);
+    }
+
+    public List<Sweet> searchSweets(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        SweetSearchCriteria criteria = new SweetSearchCriteria(name, category, minPrice, maxPrice);
+        return sweetCache.getQuery(criteria, () -> sweetRepository.search(criteria));
+    }
+
+    public List<SweetSuggestion> suggestSweets(String prefix, int limit) {
+        if (limit <= 0 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return searchIndex.suggest(prefix, limit);
+    }
+
+    // Until the incremental summary has loaded, the facets are aggregated by the database instead
+    public List<CategoryFacet> getCategoryFacets() {
+        return facetIndex.getFacets().orElseGet(sweetRepository::aggregateCategoryFacets);
+    }
+
+    public List<Sweet> rankedSearch(String query, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<String> rankedIds = searchIndex.rankedSearch(query, limit);
+        Map<String, Sweet> byId = sweetRepository.findAllById(rankedIds).stream()
+                .collect(Collectors.toMap(Sweet::getId, Function.identity()));
+        return rankedIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    public SweetPage getSweetsPage(SweetSearchCriteria criteria, String cursor, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // One extra document tells us whether another page exists without a count query
+        String afterId = PageCursor.decode(cursor);
+        List<Sweet> found = sweetCache.getQuery(new PageKey(criteria, afterId, limit),
+                () -> sweetRepository.findPage(criteria, afterId, limit + 1));
+        if (found.size() <= limit) {
+            return new SweetPage(found, null);
+        }
+        List<Sweet> items = found.subList(0, limit);
+        return new SweetPage(List.copyOf(items), PageCursor.encode(items.get(limit - 1).getId()));
+    }
+
+    /**
+     * Catalog change sequence for validating cached list and search responses. Read it before the data it
+     * describes, so a concurrent write can only make the data newer than the version, never older.
+     */
+    public long getCatalogVersion() {
+        return sweetCache.catalogVersion();
+    }
+
+    /**
+     * Overwrites the editable fields of a sweet. With an {@code expectedVersion} the write only succeeds while
+     * the stored sweet is still at that version; otherwise the last writer wins.
+     */
+    public Sweet updateSweet(String id, Sweet updated, Long expectedVersion) {
+        Optional<Sweet> saved = sweetRepository.updateDetails(id, updated, expectedVersion);
+        if (saved.isEmpty()) {
+            if (!sweetRepository.existsById(id)) {
+                throw new SweetNotFoundException("Sweet not found: " + id);
+            }
+            throw new SweetVersionConflictException("Sweet " + id + " was modified by someone else, reload it and retry");
+        }
+        written(SweetChangedEvent.Type.UPDATED, saved.get());
+        return saved.get();
     }
 
     public void deleteSweet(String id) {
@@ -103,34 +200,136 @@ public class SweetService {
             throw new SweetNotFoundException("Sweet not found: " + id);
         }
         sweetRepository.deleteById(id);
+        sweetCache.evict(id);
+        eventPublisher.publishEvent(SweetChangedEvent.deleted(id));
     }
 
     public Sweet purchaseSweet(String id, int quantityToPurchase) {
-        Sweet sweet = sweetRepository.findById(id)
-                .orElseThrow(() -> new SweetNotFoundException("Sweet not found: " + id));
-
         if (quantityToPurchase <= 0) {
-            throw new IllegalArgumentException("Quantity to purchase must be positive");
+            throw new InvalidQuantityException("Quantity to purchase must be positive");
         }
 
-        if (sweet.getQuantity() == null || sweet.getQuantity() < quantityToPurchase) {
-            throw new InsufficientStockException("Insufficient stock for sweet: " + id);
+        Optional<Sweet> updated = sweetRepository.decrementQuantity(id, quantityToPurchase);
+        if (updated.isEmpty()) {
+            RuntimeException rejection = purchaseRejection(id);
+            singlePurchases.rejected(rejection instanceof SweetNotFoundException);
+            throw rejection;
+        }
+        singlePurchases.succeeded.increment();
+        written(SweetChangedEvent.Type.PURCHASED, updated.get(), -quantityToPurchase);
+        return updated.get();
+    }
+
+    public BatchPurchaseResponse purchaseSweets(List<PurchaseLine> lines) {
+        // Lines for the same sweet are merged so the stock guard sees the whole basket
+        Map<String, Integer> amountsById = new LinkedHashMap<>();
+        for (PurchaseLine line : lines) {
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new InvalidQuantityException("Quantity to purchase must be positive");
+            }
+            amountsById.merge(line.getSweetId(), line.getQuantity(), Integer::sum);
         }
 
-        sweet.setQuantity(sweet.getQuantity() - quantityToPurchase);
-        return sweetRepository.save(sweet);
+        return sweetRepository.decrementQuantities(amountsById)
+                .map(updated -> {
+                    batchPurchases.succeeded.increment();
+                    updated.forEach(sweet -> written(SweetChangedEvent.Type.PURCHASED, sweet,
+                            -amountsById.get(sweet.getId())));
+                    return completedBatch(lines, updated);
+                })
+                .orElseGet(() -> {
+                    BatchPurchaseResponse response = rejectedBatch(lines, amountsById);
+                    batchPurchases.rejected(response.getLines().stream()
+                            .anyMatch(result -> result.getStatus() == PurchaseLineStatus.NOT_FOUND));
+                    return response;
+                });
+    }
+
+    private BatchPurchaseResponse completedBatch(List<PurchaseLine> lines, List<Sweet> updated) {
+        Map<String, Sweet> byId = updated.stream().collect(Collectors.toMap(Sweet::getId, Function.identity()));
+        List<PurchaseLineResult> results = lines.stream()
+                .map(line -> new PurchaseLineResult(line.getSweetId(), line.getQuantity(),
+                        PurchaseLineStatus.PURCHASED, byId.get(line.getSweetId()).getQuantity()))
+                .toList();
+        return new BatchPurchaseResponse(true, results, updated);
+    }
+
+    // Nothing was written; report which lines blocked the basket against current stock.
+    private BatchPurchaseResponse rejectedBatch(List<PurchaseLine> lines, Map<String, Integer> amountsById) {
+        Map<String, Sweet> current = sweetRepository.findAllById(amountsById.keySet()).stream()
+                .collect(Collectors.toMap(Sweet::getId, Function.identity()));
+        List<PurchaseLineResult> results = lines.stream()
+                .map(line -> {
+                    Sweet sweet = current.get(line.getSweetId());
+                    if (sweet == null) {
+                        return new PurchaseLineResult(line.getSweetId(), line.getQuantity(),
+                                PurchaseLineStatus.NOT_FOUND, null);
+                    }
+                    int available = sweet.getQuantity() == null ? 0 : sweet.getQuantity();
+                    PurchaseLineStatus status = available < amountsById.get(line.getSweetId())
+                            ? PurchaseLineStatus.INSUFFICIENT_STOCK
+                            : PurchaseLineStatus.NOT_APPLIED;
+                    return new PurchaseLineResult(line.getSweetId(), line.getQuantity(), status, available);
+                })
+                .toList();
+        return new BatchPurchaseResponse(false, results, List.copyOf(current.values()));
     }
 
     public Sweet restockSweet(String id, int quantityToAdd) {
-        Sweet sweet = sweetRepository.findById(id)
+        if (quantityToAdd <= 0) {
+            throw new InvalidQuantityException("Quantity to restock must be positive");
+        }
+
+        Sweet updated = sweetRepository.incrementQuantity(id, quantityToAdd)
                 .orElseThrow(() -> new SweetNotFoundException("Sweet not found: " + id));
+        written(SweetChangedEvent.Type.RESTOCKED, updated, quantityToAdd);
+        return updated;
+    }
 
-        if (quantityToAdd <= 0) {
-            throw new IllegalArgumentException("Quantity to restock must be positive");
+    private void written(SweetChangedEvent.Type type, Sweet sweet) {
+        written(type, sweet, null);
+    }
+
+    private void written(SweetChangedEvent.Type type, Sweet sweet, Integer quantityChange) {
+        sweetCache.put(sweet);
+        eventPublisher.publishEvent(new SweetChangedEvent(type, sweet, quantityChange));
+    }
+
+    // The conditional update only tells us that nothing matched; find out which guard failed. Going through the
+    // cache means repeated rejections of a sold-out sweet do not cost a second round trip each.
+    private RuntimeException purchaseRejection(String id) {
+        if (sweetCache.getSweet(id, sweetRepository::findById).isEmpty()) {
+            return new SweetNotFoundException("Sweet not found: " + id);
         }
+        return new InsufficientStockException("Insufficient stock for sweet: " + id);
+    }
+
+    // One counter per outcome, so SLO queries can divide rejections by attempts per purchase kind
+    private static final class PurchaseCounters {
+
+        private final Counter succeeded;
+        private final Counter insufficientStock;
+        private final Counter notFound;
+
+        private PurchaseCounters(MeterRegistry meterRegistry, String kind) {
+            this.succeeded = counter(meterRegistry, kind, "success");
+            this.insufficientStock = counter(meterRegistry, kind, "insufficient_stock");
+            this.notFound = counter(meterRegistry, kind, "not_found");
+        }
+
+        private void rejected(boolean sweetMissing) {
+            (sweetMissing ? notFound : insufficientStock).increment();
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String kind, String outcome) {
+            return Counter.builder("sweetshop.purchases")
+                    .description("Purchase attempts by outcome")
+                    .tag("kind", kind)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
 
-        int newQuantity = (sweet.getQuantity() == null ? 0 : sweet.getQuantity()) + quantityToAdd;
-        sweet.setQuantity(newQuantity);
-        return sweetRepository.save(sweet);
+    private record PageKey(SweetSearchCriteria criteria, String afterId, int limit) {
     }
 }
@@ -0,0 +1,36 @@
+package com.sweetshop.backend.sweets.snapshot;
+
+/**
+ * The full catalog response, serialized once as JSON and once more gzipped, for one catalog version. The
+ * arrays are never modified after construction and are written to responses as they are.
+ */
+public final class CatalogSnapshot {
+
+    private final long catalogVersion;
+    private final long builtAtNanos;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    public CatalogSnapshot(long catalogVersion, long builtAtNanos, byte[] json, byte[] gzip) {
+        this.catalogVersion = catalogVersion;
+        this.builtAtNanos = builtAtNanos;
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    long getBuiltAtNanos() {
+        return builtAtNanos;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+}
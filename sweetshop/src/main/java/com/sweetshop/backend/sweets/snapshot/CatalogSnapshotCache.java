@@ -0,0 +1,153 @@
+package com.sweetshop.backend.sweets.snapshot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.service.SweetService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the unpaginated catalog response as a {@link CatalogSnapshot}, so {@code GET /api/sweets} can write
+ * ready-made bytes instead of serializing every sweet per request.
+ * <p>
+ * A snapshot is handed out only while it describes the current catalog version and is younger than
+ * {@code sweetshop.cache.ttl}, counted from when its data was loaded, the same rule that lets the catalog cache
+ * pick up writes from other nodes. Otherwise callers fall back to the regular response until a rebuild on the
+ * task executor finishes, so a client never gets the catalog from before a write it has already seen. Writes
+ * trigger a rebuild once a snapshot has been asked for. A burst of writes costs at most one rebuild in progress
+ * and one queued.
+ */
+@Component
+public class CatalogSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotCache.class);
+
+    private final SweetService sweetService;
+    private final SweetRepository sweetRepository;
+    private final ObjectWriter catalogWriter;
+    private final TaskExecutor taskExecutor;
+    private final long ttlNanos;
+
+    private volatile CatalogSnapshot snapshot;
+    private volatile boolean requested;
+    private final AtomicBoolean stale = new AtomicBoolean();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public CatalogSnapshotCache(SweetService sweetService,
+                                SweetRepository sweetRepository,
+                                ObjectMapper objectMapper,
+                                @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                @Value("${sweetshop.cache.ttl:30s}") Duration ttl) {
+        this.sweetService = sweetService;
+        this.sweetRepository = sweetRepository;
+        this.catalogWriter = objectMapper.writerFor(new TypeReference<List<Sweet>>() { });
+        this.taskExecutor = taskExecutor;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * The snapshot of the current catalog version, or empty while it is being built or the last one is too old.
+     */
+    public Optional<CatalogSnapshot> current() {
+        requested = true;
+        CatalogSnapshot current = snapshot;
+        if (!isCurrent(current)) {
+            startRebuild();
+            return Optional.empty();
+        }
+        return Optional.of(current);
+    }
+
+    /**
+     * Whether {@link #current()} would hand out a snapshot right now; unlike it, never starts a rebuild.
+     */
+    public boolean isAvailable() {
+        return isCurrent(snapshot);
+    }
+
+    private boolean isCurrent(CatalogSnapshot current) {
+        return current != null && System.nanoTime() - current.getBuiltAtNanos() < ttlNanos
+                && current.getCatalogVersion() == sweetService.getCatalogVersion();
+    }
+
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (requested) {
+            requestRebuild();
+        }
+    }
+
+    @EventListener
+    public void onSweetsChanged(SweetsChangedEvent event) {
+        if (requested) {
+            requestRebuild();
+        }
+    }
+
+    private void requestRebuild() {
+        stale.set(true);
+        if (rebuilding.compareAndSet(false, true)) {
+            taskExecutor.execute(this::rebuild);
+        }
+    }
+
+    // Reads only need some rebuild under way; queueing one per request would rebuild again right after it
+    private void startRebuild() {
+        if (!rebuilding.get()) {
+            requestRebuild();
+        }
+    }
+
+    private void rebuild() {
+        while (true) {
+            while (stale.getAndSet(false)) {
+                try {
+                    snapshot = build();
+                } catch (RuntimeException ex) {
+                    log.warn("Could not build the catalog snapshot: {}", ex.getMessage());
+                }
+            }
+            rebuilding.set(false);
+            // A write may have landed after the last build but before the flag was cleared
+            if (!stale.get() || !rebuilding.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    // The version is read first, so a write that races with the load leaves the snapshot stale, never wrong. The
+    // data comes from the repository rather than the catalog cache, so the snapshot's age starts at the load.
+    private CatalogSnapshot build() {
+        long version = sweetService.getCatalogVersion();
+        long builtAt = System.nanoTime();
+        try {
+            byte[] json = catalogWriter.writeValueAsBytes(sweetRepository.findAll());
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new CatalogSnapshot(version, builtAt, json, compressed.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
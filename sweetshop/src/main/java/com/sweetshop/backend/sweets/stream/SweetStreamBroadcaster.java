@@ -0,0 +1,217 @@
+package com.sweetshop.backend.sweets.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.backend.sweets.dto.SweetDelta;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans {@link SweetChangedEvent}s out to the {@code /api/sweets/stream} subscribers.
+ * <p>
+ * Each event is serialized once and offered to a bounded buffer per subscriber; the publishing (request)
+ * thread never writes to a socket. Buffers are drained on threads of their own, one drain at a time per
+ * subscriber, since a send blocks for as long as the client's socket is full. A subscriber whose buffer
+ * overflows is too slow to keep up and is disconnected, so it can reconnect and reload the catalog instead of
+ * silently missing changes.
+ */
+@Component
+public class SweetStreamBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(SweetStreamBroadcaster.class);
+
+    private static final String EVENT_NAME = "sweet";
+    private static final Message HEARTBEAT = new Message(null, null);
+
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor taskExecutor;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Counter evictions;
+
+    @Autowired
+    public SweetStreamBroadcaster(ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${sweetshop.stream.buffer-size:256}") int bufferSize,
+                                  @Value("${sweetshop.stream.max-subscribers:1000}") int maxSubscribers,
+                                  @Value("${sweetshop.stream.timeout:30m}") Duration timeout,
+                                  Environment environment) {
+        this(objectMapper, drainExecutor(maxSubscribers, Threading.VIRTUAL.isActive(environment)), meterRegistry,
+                bufferSize, maxSubscribers, timeout);
+    }
+
+    public SweetStreamBroadcaster(ObjectMapper objectMapper,
+                                  TaskExecutor taskExecutor,
+                                  MeterRegistry meterRegistry,
+                                  int bufferSize,
+                                  int maxSubscribers,
+                                  Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.taskExecutor = taskExecutor;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.evictions = Counter.builder("sweetshop.stream.evictions")
+                .description("Stream subscribers disconnected because they fell too far behind")
+                .register(meterRegistry);
+        Gauge.builder("sweetshop.stream.subscribers", subscribers, Set::size)
+                .description("Connected stream subscribers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers a new subscriber, or returns empty when the subscriber limit is reached.
+     */
+    public Optional<SseEmitter> subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, bufferSize);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return Optional.of(emitter);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(SweetDelta.of(event));
+        } catch (JsonProcessingException ex) {
+            log.warn("Could not serialize change of sweet {}: {}", event.getSweetId(), ex.getMessage());
+            return;
+        }
+        Message message = new Message(Long.toString(sequence.incrementAndGet()), data);
+        subscribers.forEach(subscriber -> offer(subscriber, message));
+    }
+
+    @EventListener
+    public void onSweetsChanged(SweetsChangedEvent event) {
+        event.getChanges().forEach(this::onSweetChanged);
+    }
+
+    // Keeps idle connections open through proxies and finds clients that went away without closing
+    @Scheduled(fixedDelayString = "${sweetshop.stream.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> offer(subscriber, HEARTBEAT));
+    }
+
+    private void offer(Subscriber subscriber, Message message) {
+        if (!subscriber.buffer.offer(message)) {
+            evictions.increment();
+            disconnect(subscriber);
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Message message;
+            while ((message = subscriber.buffer.poll()) != null) {
+                try {
+                    subscriber.emitter.send(message.toEvent());
+                } catch (IOException | RuntimeException ex) {
+                    disconnect(subscriber);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+            // An offer may have landed after the last poll but before the flag was cleared
+            if (subscriber.buffer.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.buffer.clear();
+            subscriber.emitter.complete();
+        }
+    }
+
+    // Drains must not hold up the index, facet and snapshot rebuilds on the shared applicationTaskExecutor. At most
+    // one drain runs per subscriber, so maxSubscribers threads never make a drain wait. Virtual threads are only
+    // used when Boot uses them too, which needs Java 21; Spring refuses them on older JVMs.
+    private static TaskExecutor drainExecutor(int maxSubscribers, boolean virtualThreads) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("sweet-stream-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxSubscribers);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("sweet-stream-");
+        executor.setCorePoolSize(maxSubscribers);
+        executor.setMaxPoolSize(maxSubscribers);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // Queued instead of an SseEventBuilder: a builder is consumed by send(), so every send needs its own
+    private record Message(String id, String data) {
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (data == null) {
+                return SseEmitter.event().comment("");
+            }
+            return SseEmitter.event().id(id).name(EVENT_NAME).data(data);
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<Message> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
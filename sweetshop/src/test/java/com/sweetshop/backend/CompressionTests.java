@@ -0,0 +1,109 @@
+package com.sweetshop.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.backend.security.JwtService;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.service.SweetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs against the embedded Tomcat, since its response compression is bypassed by MockMvc
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"sweetshop.storage.directory=", "sweetshop.journal.directory="})
+@ActiveProfiles("inmemory")
+class CompressionTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private SweetService sweetService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void seedCatalog() {
+		if (!sweetService.getAllSweets().isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < 60; i++) {
+			sweetService.createSweet(new Sweet(null, "Assorted Sweet " + i, "Mithai", new BigDecimal("12.50"), 40));
+		}
+	}
+
+	@Test
+	void pagedCatalog_acceptingGzip_shouldBeCompressedByTheServer() throws Exception {
+		// when
+		HttpResponse<byte[]> response = get("/api/sweets?limit=100", "gzip");
+
+		// then
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+		assertThat(response.headers().firstValue(HttpHeaders.ETAG)).get().asString()
+				.startsWith("W/\"").endsWith("-json\"");
+		JsonNode page = objectMapper.readTree(gunzip(response.body()));
+		assertThat(page.get("items")).hasSize(60);
+	}
+
+	@Test
+	void fullCatalog_acceptingGzip_shouldBeCompressedWhetherOrNotTheSnapshotIsReady() throws Exception {
+		// when: the first request may still be serialized as usual, the later ones come from the snapshot
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<byte[]> response = get("/api/sweets", "gzip");
+
+			// then
+			assertThat(response.statusCode()).isEqualTo(200);
+			assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+			assertThat(response.headers().firstValue(HttpHeaders.ETAG)).get().asString().endsWith("-json-gz\"");
+			assertThat(objectMapper.readTree(gunzip(response.body()))).hasSize(60);
+		}
+	}
+
+	@Test
+	void pagedCatalog_refusingGzip_shouldBeSentPlain() throws Exception {
+		// when
+		HttpResponse<byte[]> response = get("/api/sweets?limit=100", "gzip;q=0");
+
+		// then
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+		assertThat(objectMapper.readTree(response.body()).get("items")).hasSize(60);
+	}
+
+	private HttpResponse<byte[]> get(String path, String acceptEncoding) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateToken("user@example.com", "USER"))
+				.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)
+				.GET()
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private static byte[] gunzip(byte[] body) throws Exception {
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			return gzip.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.sweetshop.backend;
+
+import com.sweetshop.backend.auth.repository.InMemoryUserRepository;
+import com.sweetshop.backend.auth.repository.UserRepository;
+import com.sweetshop.backend.security.JwtService;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.InMemorySweetRepository;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"sweetshop.storage.directory=", "sweetshop.journal.directory="})
+@ActiveProfiles("inmemory")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class InMemoryProfileTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private SweetRepository sweetRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void contextLoads_withInMemoryRepositories() {
+		assertThat(sweetRepository).isInstanceOf(InMemorySweetRepository.class);
+		assertThat(userRepository).isInstanceOf(InMemoryUserRepository.class);
+	}
+
+	@Test
+	void save_shouldRoundTripAndRejectStaleVersions() {
+		// given
+		Sweet created = sweetRepository.save(new Sweet(null, "Barfi", "Indian", new BigDecimal("12.00"), 30));
+		Sweet first = sweetRepository.findById(created.getId()).orElseThrow();
+		Sweet second = sweetRepository.findById(created.getId()).orElseThrow();
+
+		// when
+		first.setQuantity(25);
+		sweetRepository.save(first);
+		second.setQuantity(10);
+
+		// then
+		assertThatThrownBy(() -> sweetRepository.save(second)).isInstanceOf(OptimisticLockingFailureException.class);
+		Sweet stored = sweetRepository.findById(created.getId()).orElseThrow();
+		assertThat(stored.getQuantity()).isEqualTo(25);
+		assertThat(stored.getVersion()).isEqualTo(1L);
+		assertThatThrownBy(() -> sweetRepository.save(new Sweet(created.getId(), "Barfi", "Indian", BigDecimal.ONE, 1)))
+				.isInstanceOf(DuplicateKeyException.class);
+	}
+
+
+	@Test
+	void actuator_shouldOnlyExposeHealthWithoutAdminToken() throws Exception {
+		String userToken = jwtService.generateToken("user@example.com", "USER");
+		String adminToken = jwtService.generateToken("admin@example.com", "ADMIN");
+
+		mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+		mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+				.andExpect(status().isOk());
+	}
+
+}
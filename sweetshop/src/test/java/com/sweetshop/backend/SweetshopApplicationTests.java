@@ -3,7 +3,7 @@ package com.sweetshop.backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "sweetshop.journal.directory=")
 class SweetshopApplicationTests {
 
 	@Test
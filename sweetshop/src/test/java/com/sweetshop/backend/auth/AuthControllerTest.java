@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sweetshop.backend.auth.controller.AuthController;
 import com.sweetshop.backend.auth.dto.LoginRequest;
 import com.sweetshop.backend.auth.dto.RegisterRequest;
+import com.sweetshop.backend.auth.exception.InvalidCredentialsException;
 import com.sweetshop.backend.auth.model.User;
 import com.sweetshop.backend.auth.service.AuthService;
 import org.junit.jupiter.api.Test;
@@ -97,7 +98,7 @@ class AuthControllerTest {
         LoginRequest request = new LoginRequest("test@example.com", "wrong");
 
         when(authService.login(any(LoginRequest.class)))
-                .thenThrow(new IllegalArgumentException("Invalid credentials"));
+                .thenThrow(new InvalidCredentialsException());
 
         mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -6,6 +6,7 @@ import com.sweetshop.backend.auth.model.User;
 import com.sweetshop.backend.auth.repository.UserRepository;
 import com.sweetshop.backend.auth.service.AuthService;
 import com.sweetshop.backend.security.JwtService;
+import com.sweetshop.backend.security.PasswordHashingBusyException;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -58,4 +59,42 @@ class AuthServiceTest {
         verify(jwtService, never()).generateToken(anyString(), anyString());
     }
 
+    @Test
+    void login_withOutdatedHash_rehashesPassword() {
+        // given
+        LoginRequest request = new LoginRequest("a@b.com", "plainPass");
+        User user = new User("1", "a@b.com", "oldHash", "USER");
+
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("plainPass", "oldHash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldHash")).thenReturn(true);
+        when(passwordEncoder.encode("plainPass")).thenReturn("newHash");
+
+        // when
+        authService.login(request);
+
+        // then
+        assertThat(user.getPassword()).isEqualTo("newHash");
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void login_whenHashingIsBusyDuringUpgrade_stillSucceeds() {
+        // given
+        LoginRequest request = new LoginRequest("a@b.com", "plainPass");
+        User user = new User("1", "a@b.com", "oldHash", "USER");
+
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("plainPass", "oldHash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldHash")).thenReturn(true);
+        when(passwordEncoder.encode("plainPass")).thenThrow(new PasswordHashingBusyException("busy"));
+        when(jwtService.generateToken("a@b.com", "USER")).thenReturn("jwt-token-123");
+
+        // when
+        LoginResponse result = authService.login(request);
+
+        // then
+        assertThat(result.getToken()).isEqualTo("jwt-token-123");
+        verify(userRepository, never()).save(any());
+    }
 }
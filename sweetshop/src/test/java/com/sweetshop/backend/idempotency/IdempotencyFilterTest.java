@@ -0,0 +1,192 @@
+package com.sweetshop.backend.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyService idempotencyService =
+            new IdempotencyService(new InMemoryIdempotencyRepository(), Duration.ofHours(1), 100,
+                    Duration.ofMinutes(2));
+    private final IdempotencyFilter filter =
+            new IdempotencyFilter(idempotencyService, Duration.ofSeconds(5), meterRegistry);
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void retry_shouldReplayStoredResponseWithoutExecutingAgain() throws Exception {
+        // given
+        FilterChain chain = respondWith(200);
+        filter.doFilter(purchase("alice", "key-1", "{}"), new MockHttpServletResponse(), chain);
+
+        // when
+        MockHttpServletResponse retried = new MockHttpServletResponse();
+        filter.doFilter(purchase("alice", "key-1", "{}"), retried, chain);
+
+        // then
+        assertThat(executions).hasValue(1);
+        assertThat(retried.getStatus()).isEqualTo(200);
+        assertThat(retried.getContentAsString()).isEqualTo("{\"quantity\":1}");
+        assertThat(retried.getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+    }
+
+    @Test
+    void retry_withDifferentBody_shouldBeRejected() throws Exception {
+        // given
+        FilterChain chain = respondWith(200);
+        filter.doFilter(purchase("alice", "key-1", "{\"quantity\":1}"), new MockHttpServletResponse(), chain);
+
+        // when
+        MockHttpServletResponse retried = new MockHttpServletResponse();
+        filter.doFilter(purchase("alice", "key-1", "{\"quantity\":2}"), retried, chain);
+
+        // then
+        assertThat(executions).hasValue(1);
+        assertThat(retried.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void retry_withDifferentUnreadTail_shouldBeRejected() throws Exception {
+        // given: the handler streams the first line of the body and stops
+        List<String> read = new ArrayList<>();
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            read.add(new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))
+                    .readLine());
+            ((HttpServletResponse) response).setStatus(200);
+        };
+        filter.doFilter(purchase("alice", "key-1", "{\"id\":1}\n{\"id\":2}"), new MockHttpServletResponse(), chain);
+
+        // when
+        MockHttpServletResponse retried = new MockHttpServletResponse();
+        filter.doFilter(purchase("alice", "key-1", "{\"id\":1}\n{\"id\":3}"), retried, chain);
+
+        // then: the body reached the handler intact and its unread rest still counted
+        assertThat(read).containsExactly("{\"id\":1}");
+        assertThat(executions).hasValue(1);
+        assertThat(retried.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void sameKey_fromAnotherUser_shouldExecuteSeparately() throws Exception {
+        // given
+        FilterChain chain = respondWith(200);
+        filter.doFilter(purchase("alice", "key-1", "{}"), new MockHttpServletResponse(), chain);
+
+        // when
+        MockHttpServletResponse other = new MockHttpServletResponse();
+        filter.doFilter(purchase("bob", "key-1", "{}"), other, chain);
+
+        // then
+        assertThat(executions).hasValue(2);
+        assertThat(other.getHeader(IdempotencyFilter.REPLAYED)).isNull();
+    }
+
+    @Test
+    void concurrentDuplicates_shouldExecuteOnce() throws Exception {
+        // given: the first request is held inside the chain until the duplicate is waiting on it
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            executing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            response.getOutputStream().write("done".getBytes(StandardCharsets.UTF_8));
+        };
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(purchase("alice", "key-1", "{}"), first, chain);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertThat(executing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        MockHttpServletResponse duplicate = new MockHttpServletResponse();
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(purchase("alice", "key-1", "{}"), duplicate, chain);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(executions).hasValue(1);
+        assertThat(first.getContentAsString()).isEqualTo("done");
+        assertThat(duplicate.getContentAsString()).isEqualTo("done");
+        assertThat(duplicate.getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+    }
+
+    @Test
+    void serverError_shouldNotBeStored() throws Exception {
+        // given
+        filter.doFilter(purchase("alice", "key-1", "{}"), new MockHttpServletResponse(), respondWith(503));
+
+        // when
+        MockHttpServletResponse retried = new MockHttpServletResponse();
+        filter.doFilter(purchase("alice", "key-1", "{}"), retried, respondWith(200));
+
+        // then
+        assertThat(executions).hasValue(2);
+        assertThat(retried.getStatus()).isEqualTo(200);
+        assertThat(retried.getHeader(IdempotencyFilter.REPLAYED)).isNull();
+    }
+
+    @Test
+    void oversizedKey_shouldBeRejected() throws Exception {
+        // given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(purchase("alice", "k".repeat(256), "{}"), response, respondWith(200));
+
+        // then
+        assertThat(executions).hasValue(0);
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    private FilterChain respondWith(int status) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType("application/json");
+            response.getOutputStream().write("{\"quantity\":1}".getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static MockHttpServletRequest purchase(String user, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/sweets/1/purchase");
+        request.setUserPrincipal(() -> user);
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
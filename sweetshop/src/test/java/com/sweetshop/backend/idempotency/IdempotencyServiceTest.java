@@ -0,0 +1,47 @@
+package com.sweetshop.backend.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyServiceTest {
+
+    private final InMemoryIdempotencyRepository repository = new InMemoryIdempotencyRepository();
+
+    @Test
+    void claim_afterPendingLeaseExpires_shouldLetAnotherInstanceTakeOver() throws Exception {
+        // given: an instance claimed the key and died before finishing
+        IdempotencyService crashed = new IdempotencyService(repository, Duration.ofHours(24), 10, Duration.ofSeconds(1));
+        IdempotencyService survivor = new IdempotencyService(repository, Duration.ofHours(24), 10, Duration.ofSeconds(1));
+        crashed.startOrJoin("user:key");
+        assertThat(crashed.claim("user:key")).isPresent();
+        survivor.startOrJoin("user:key");
+        assertThat(survivor.claim("user:key")).isEmpty();
+
+        // when
+        Thread.sleep(1200);
+        survivor.startOrJoin("user:key");
+
+        // then
+        assertThat(survivor.claim("user:key")).isPresent();
+    }
+
+    @Test
+    void finish_shouldKeepTheResponseForTheFullTtl() {
+        // given
+        IdempotencyService service = new IdempotencyService(repository, Duration.ofHours(24), 10, Duration.ofSeconds(1));
+        service.startOrJoin("user:key");
+        IdempotencyRecord pending = service.claim("user:key").orElseThrow();
+
+        // when
+        service.finish("user:key", pending.completed("fingerprint", 200, "application/json", new byte[0]));
+
+        // then
+        IdempotencyRecord stored = repository.find("user:key").orElseThrow();
+        assertThat(stored.isCompleted()).isTrue();
+        assertThat(stored.getExpiresAt()).isAfter(Instant.now().plus(Duration.ofHours(23)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.sweetshop.backend.ratelimit;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoLatencyMonitorTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private final MongoLatencyMonitor monitor = new MongoLatencyMonitor(new SimpleMeterRegistry());
+    private int requestId;
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void commands_onRequestThread_shouldBeSampled() {
+        // given
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // when
+        run("find", 40);
+        run("findAndModify", 40);
+
+        // then
+        assertThat(monitor.getAverageNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    void cursorsBulkWritesAndBackgroundWork_shouldNotBeSampled() {
+        // given: a background scan, then a request streaming a cursor, committing and writing in bulk
+        run("find", 900);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // when
+        run("getMore", 900);
+        run("commitTransaction", 900);
+        run("update", 900);
+
+        // then
+        assertThat(monitor.getAverageNanos()).isZero();
+    }
+
+    private void run(String commandName, long elapsedMillis) {
+        int id = ++requestId;
+        monitor.commandStarted(new CommandStartedEvent(null, id, id, CONNECTION, "sweetshop", commandName,
+                new BsonDocument()));
+        monitor.commandSucceeded(new CommandSucceededEvent(null, id, id, CONNECTION, "sweetshop", commandName,
+                new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(elapsedMillis)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.sweetshop.backend.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MongoLatencyMonitor latencyMonitor = new MongoLatencyMonitor(meterRegistry);
+    private final RateLimiter rateLimiter = new RateLimiter("2/1h", "2/1h", "2/1h", "", 1000);
+    private final RateLimitFilter filter = new RateLimitFilter(rateLimiter,
+            new LoadShedder(latencyMonitor, Duration.ofMillis(100)),
+            request -> request.getHeader("If-None-Match") != null, meterRegistry);
+    private final AtomicInteger passed = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> passed.incrementAndGet();
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void clientOverBudget_shouldGetTooManyRequests() throws Exception {
+        // given
+        authenticate("alice@example.com");
+        send("GET", "/api/sweets/search");
+        send("GET", "/api/sweets/search");
+
+        // when
+        MockHttpServletResponse response = send("GET", "/api/sweets/search");
+
+        // then
+        assertThat(passed).hasValue(2);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(response.getHeader("Retry-After"))).isBetween(1L, 1800L);
+        assertThat(meterRegistry.counter("sweetshop.ratelimit.rejected", "route", "search", "reason", "rate_limited")
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void budgets_shouldBeKeptPerUserAndRoute() throws Exception {
+        // given
+        authenticate("alice@example.com");
+        send("GET", "/api/sweets/search");
+        send("GET", "/api/sweets/search");
+
+        // when
+        MockHttpServletResponse purchase = send("POST", "/api/sweets/1/purchase");
+        authenticate("bob@example.com");
+        MockHttpServletResponse otherUser = send("GET", "/api/sweets/search");
+
+        // then
+        assertThat(purchase.getStatus()).isEqualTo(200);
+        assertThat(otherUser.getStatus()).isEqualTo(200);
+        assertThat(passed).hasValue(4);
+    }
+
+    @Test
+    void authRequests_shouldBeKeyedByClientAddress() throws Exception {
+        // given
+        send("POST", "/api/auth/login", "10.0.0.1");
+        send("POST", "/api/auth/register", "10.0.0.1");
+
+        // when
+        MockHttpServletResponse sameAddress = send("POST", "/api/auth/login", "10.0.0.1");
+        MockHttpServletResponse otherAddress = send("POST", "/api/auth/login", "10.0.0.2");
+
+        // then
+        assertThat(sameAddress.getStatus()).isEqualTo(429);
+        assertThat(otherAddress.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void blankBudget_shouldLeaveRouteUnlimited() throws Exception {
+        // given
+        authenticate("alice@example.com");
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            send("GET", "/api/sweets/1");
+        }
+
+        // then
+        assertThat(passed).hasValue(10);
+    }
+
+    @Test
+    void slowMongo_shouldShedSearchesBeforePurchases() throws Exception {
+        // given
+        authenticate("alice@example.com");
+        latencyMonitor.record(TimeUnit.MILLISECONDS.toNanos(150));
+
+        // when
+        MockHttpServletResponse search = send("GET", "/api/sweets");
+        MockHttpServletResponse read = send("GET", "/api/sweets/1");
+        MockHttpServletResponse purchase = send("POST", "/api/sweets/1/purchase");
+
+        // then
+        assertThat(search.getStatus()).isEqualTo(503);
+        assertThat(search.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(read.getStatus()).isEqualTo(200);
+        assertThat(purchase.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void slowMongo_shouldLetThroughSearchesAnsweredWithoutDatabase() throws Exception {
+        // given
+        authenticate("alice@example.com");
+        latencyMonitor.record(TimeUnit.MILLISECONDS.toNanos(150));
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/api/sweets");
+        conditional.addHeader("If-None-Match", "\"abc-7\"");
+
+        // when
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(conditional, response, chain);
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(passed).hasValue(1);
+    }
+
+    @Test
+    void verySlowMongo_shouldShedEverythingButPurchasesAndAuth() throws Exception {
+        // given
+        authenticate("alice@example.com");
+        latencyMonitor.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        // when
+        MockHttpServletResponse read = send("GET", "/api/sweets/1");
+        MockHttpServletResponse restock = send("POST", "/api/sweets/1/restock");
+        MockHttpServletResponse login = send("POST", "/api/auth/login");
+
+        // then
+        assertThat(read.getStatus()).isEqualTo(503);
+        assertThat(restock.getStatus()).isEqualTo(200);
+        assertThat(login.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void bucket_shouldRefillOverItsPeriod() {
+        // given
+        RateLimiter limiter = new RateLimiter("", "", "", "2/2s", 1000);
+        long start = 0;
+        limiter.tryAcquire(RateLimitRoute.DEFAULT, "alice", start);
+        limiter.tryAcquire(RateLimitRoute.DEFAULT, "alice", start);
+
+        // when
+        long wait = limiter.tryAcquire(RateLimitRoute.DEFAULT, "alice", start);
+        long afterOneSecond = limiter.tryAcquire(RateLimitRoute.DEFAULT, "alice", start + TimeUnit.SECONDS.toNanos(1));
+
+        // then
+        assertThat(wait).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(afterOneSecond).isZero();
+    }
+
+    @Test
+    void malformedBudget_shouldBeRejected() {
+        assertThatThrownBy(() -> new RateLimiter("ten per minute", "", "", "", 1000))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("AUTH");
+    }
+
+    private void authenticate(String email) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    private MockHttpServletResponse send(String method, String path) throws Exception {
+        return send(method, path, "127.0.0.1");
+    }
+
+    private MockHttpServletResponse send(String method, String path, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+package com.sweetshop.backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hmac-sha-256";
+
+    private final JwtService jwtService = new JwtService(SECRET, 60_000, 100);
+
+    @Test
+    void verify_withValidToken_shouldReturnPrincipal() {
+        // given
+        String token = jwtService.generateToken("a@b.com", "ADMIN");
+
+        // when
+        Optional<JwtPrincipal> principal = jwtService.verify(token);
+
+        // then
+        assertThat(principal).hasValueSatisfying(p -> {
+            assertThat(p.getEmail()).isEqualTo("a@b.com");
+            assertThat(p.getRole()).isEqualTo("ADMIN");
+            assertThat(p.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+        });
+    }
+
+    @Test
+    void verify_withSameTokenTwice_shouldParseOnlyOnce() {
+        // given
+        String token = jwtService.generateToken("a@b.com", "USER");
+
+        // when
+        JwtPrincipal first = jwtService.verify(token).orElseThrow();
+        JwtPrincipal second = jwtService.verify(token).orElseThrow();
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(jwtService.verificationCacheStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void verify_withTamperedToken_shouldReturnEmpty() {
+        // given
+        String token = jwtService.generateToken("a@b.com", "USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // then
+        assertThat(jwtService.verify(tampered)).isEmpty();
+        assertThat(jwtService.isTokenValid("not-a-jwt")).isFalse();
+    }
+
+    @Test
+    void verify_withExpiredToken_shouldReturnEmpty() {
+        // given
+        JwtService expiringService = new JwtService(SECRET, -1_000, 100);
+        String token = expiringService.generateToken("a@b.com", "USER");
+
+        // then
+        assertThat(expiringService.verify(token)).isEmpty();
+    }
+
+    @Test
+    void verify_withExpiryCenturiesAhead_shouldReturnPrincipal() {
+        // given
+        JwtService longLivedService = new JwtService(SECRET, Duration.ofDays(400 * 365L).toMillis(), 100);
+        String token = longLivedService.generateToken("a@b.com", "USER");
+
+        // then
+        assertThat(longLivedService.verify(token)).isPresent();
+        assertThat(longLivedService.verify(token)).isPresent();
+    }
+
+    @Test
+    void verify_withTokenFromOtherKey_shouldReturnEmpty() {
+        // given
+        JwtService otherService = new JwtService(SECRET + "-other", 60_000, 100);
+        String token = otherService.generateToken("a@b.com", "ADMIN");
+
+        // then
+        assertThat(jwtService.verify(token)).isEmpty();
+    }
+}
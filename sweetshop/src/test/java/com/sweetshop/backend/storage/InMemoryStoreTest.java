@@ -0,0 +1,196 @@
+package com.sweetshop.backend.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.backend.sweets.model.Sweet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryStoreTest {
+
+    private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+    private static final EntityMapping<Sweet> MAPPING = EntityMapping.of(Sweet.class, Sweet::getId, Sweet::setId,
+            sweet -> new Sweet(sweet.getId(), sweet.getName(), sweet.getCategory(), sweet.getPrice(), sweet.getQuantity()));
+
+    @TempDir
+    Path directory;
+
+    private final List<InMemoryStore<Sweet>> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(InMemoryStore::close);
+    }
+
+    @Test
+    void recover_replaysLogWithoutSnapshot() {
+        // given
+        InMemoryStore<Sweet> store = open();
+        store.put(sweet("1", "Kaju Katli", 10));
+        store.put(sweet("2", "Ladoo", 5));
+        store.update("1", sweet -> {
+            sweet.setQuantity(7);
+            return sweet;
+        });
+        store.remove("2");
+        store.close();
+
+        // when
+        InMemoryStore<Sweet> recovered = open();
+        recovered.recover();
+
+        // then
+        assertThat(recovered.size()).isEqualTo(1);
+        assertThat(recovered.get("1")).get().extracting(Sweet::getQuantity).isEqualTo(7);
+    }
+
+    @Test
+    void recover_loadsSnapshotAndReplaysLaterLog() throws Exception {
+        // given
+        InMemoryStore<Sweet> store = open();
+        store.put(sweet("1", "Kaju Katli", 10));
+        store.snapshot();
+        store.put(sweet("2", "Ladoo", 5));
+        store.close();
+
+        // when
+        InMemoryStore<Sweet> recovered = open();
+        recovered.recover();
+
+        // then
+        assertThat(recovered.all().map(Sweet::getId)).containsExactly("1", "2");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .contains("sweets-snapshot-0000000000000002.json")
+                    .doesNotContain("sweets-0000000000000001.log");
+        }
+    }
+
+    @Test
+    void recover_discardsTornTailRecord() throws Exception {
+        // given
+        InMemoryStore<Sweet> store = open();
+        store.put(sweet("1", "Kaju Katli", 10));
+        store.put(sweet("2", "Ladoo", 5));
+        store.close();
+        corruptLastRecord(directory.resolve("sweets-0000000000000001.log"));
+
+        // when
+        InMemoryStore<Sweet> recovered = open();
+        recovered.recover();
+        recovered.put(sweet("3", "Barfi", 1));
+
+        // then
+        assertThat(recovered.all().map(Sweet::getId)).containsExactly("1", "3");
+    }
+
+    @Test
+    void updateAll_appliesNothingWhenOneChangeIsRejected() {
+        // given
+        InMemoryStore<Sweet> store = open();
+        store.put(sweet("1", "Kaju Katli", 10));
+        store.put(sweet("2", "Ladoo", 5));
+
+        // when
+        var result = store.updateAll(Map.of(
+                "1", sweet -> {
+                    sweet.setQuantity(0);
+                    return sweet;
+                },
+                "2", sweet -> null));
+
+        // then
+        assertThat(result).isEmpty();
+        assertThat(store.get("1")).get().extracting(Sweet::getQuantity).isEqualTo(10);
+    }
+
+    @Test
+    void mergeAll_mergesWithStoredAndEarlierEntriesOfTheBatch() {
+        // given
+        InMemoryStore<Sweet> store = open();
+        store.put(sweet("1", "Kaju Katli", 10));
+
+        // when: stock is added to what is stored, or to the earlier entry for a repeated id
+        List<Sweet> merged = store.mergeAll(List.of(sweet("1", "Kaju Katli", 5), sweet("1", "Kaju Katli", 2),
+                sweet(null, "Ladoo", 3)), (current, incoming) -> {
+            if (current != null) {
+                incoming.setQuantity(current.getQuantity() + incoming.getQuantity());
+            }
+            return incoming;
+        });
+
+        // then
+        assertThat(merged).hasSize(2);
+        assertThat(store.get("1")).get().extracting(Sweet::getQuantity).isEqualTo(17);
+        assertThat(merged.get(1).getId()).isNotNull();
+        assertThat(store.get(merged.get(1).getId())).get().extracting(Sweet::getQuantity).isEqualTo(3);
+    }
+
+    @Test
+    void secondaryIndex_followsUpdatesAndRemovals() {
+        // given
+        InMemoryStore<Sweet> store = open();
+        SecondaryIndex<Sweet, BigDecimal> price = store.addIndex("price", Sweet::getPrice);
+        store.put(sweet("1", "Kaju Katli", 10));
+        store.put(sweet("2", "Ladoo", 5));
+
+        // when
+        store.update("1", sweet -> {
+            sweet.setPrice(new BigDecimal("99"));
+            return sweet;
+        });
+        store.remove("2");
+
+        // then
+        assertThat(price.range(null, new BigDecimal("50"))).isEmpty();
+        assertThat(price.equalTo(new BigDecimal("99"))).containsExactly("1");
+    }
+
+    @Test
+    void get_returnsCopyThatDoesNotAffectStore() {
+        // given
+        InMemoryStore<Sweet> store = open();
+        store.put(sweet("1", "Kaju Katli", 10));
+
+        // when
+        store.get("1").orElseThrow().setQuantity(0);
+
+        // then
+        assertThat(store.get("1")).get().extracting(Sweet::getQuantity).isEqualTo(10);
+    }
+
+    private InMemoryStore<Sweet> open() {
+        InMemoryStore<Sweet> store = new InMemoryStore<>("sweets", MAPPING, MAPPER, directory, 64 * 1024);
+        opened.add(store);
+        return store;
+    }
+
+    // Flips a payload byte of the second record so its checksum no longer matches
+    private static void corruptLastRecord(Path segment) throws Exception {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            int firstLength = header.flip().getInt();
+            long secondPayload = 8L + firstLength + 8;
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), secondPayload);
+        }
+    }
+
+    private static Sweet sweet(String id, String name, int quantity) {
+        return new Sweet(id, name, "Indian", new BigDecimal("10.00"), quantity);
+    }
+}
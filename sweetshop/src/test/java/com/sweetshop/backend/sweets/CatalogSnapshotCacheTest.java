@@ -0,0 +1,111 @@
+package com.sweetshop.backend.sweets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.service.SweetService;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshot;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshotCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogSnapshotCacheTest {
+
+    private final SweetService sweetService = mock(SweetService.class);
+    private final SweetRepository sweetRepository = mock(SweetRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void current_shouldServeSnapshotBuiltOnFirstRequest() throws Exception {
+        // given
+        List<Sweet> catalog = List.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100));
+        when(sweetRepository.findAll()).thenReturn(catalog);
+        CatalogSnapshotCache cache = new CatalogSnapshotCache(sweetService, sweetRepository, objectMapper,
+                new SyncTaskExecutor(), Duration.ofMinutes(1));
+
+        // when
+        Optional<CatalogSnapshot> first = cache.current();
+        Optional<CatalogSnapshot> second = cache.current();
+
+        // then
+        assertThat(first).isEmpty();
+        assertThat(second).isPresent();
+        assertThat(second.get().getJson()).isEqualTo(objectMapper.writeValueAsBytes(catalog));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(second.get().getGzip()))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(new String(second.get().getJson(), StandardCharsets.UTF_8));
+        }
+        assertThat(cache.current()).containsSame(second.get());
+        verify(sweetRepository, times(1)).findAll();
+    }
+
+    @Test
+    void onSweetChanged_shouldRebuildForTheNewCatalogVersion() {
+        // given
+        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
+        when(sweetRepository.findAll()).thenReturn(List.of(sweet));
+        CatalogSnapshotCache cache = new CatalogSnapshotCache(sweetService, sweetRepository, objectMapper,
+                new SyncTaskExecutor(), Duration.ofMinutes(1));
+        cache.current();
+
+        // when
+        when(sweetService.getCatalogVersion()).thenReturn(1L);
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet));
+
+        // then
+        assertThat(cache.current()).get().extracting(CatalogSnapshot::getCatalogVersion).isEqualTo(1L);
+    }
+
+    @Test
+    void current_afterVersionBump_shouldFallBackUntilRebuilt() {
+        // given: a write this cache was not told about, as when events are still being delivered
+        when(sweetRepository.findAll()).thenReturn(List.of());
+        CatalogSnapshotCache cache = new CatalogSnapshotCache(sweetService, sweetRepository, objectMapper,
+                new SyncTaskExecutor(), Duration.ofMinutes(1));
+        cache.current();
+        when(sweetService.getCatalogVersion()).thenReturn(1L);
+
+        // when
+        boolean availableBeforeRebuild = cache.isAvailable();
+        Optional<CatalogSnapshot> behind = cache.current();
+        Optional<CatalogSnapshot> rebuilt = cache.current();
+
+        // then
+        assertThat(availableBeforeRebuild).isFalse();
+        assertThat(behind).isEmpty();
+        assertThat(rebuilt).get().extracting(CatalogSnapshot::getCatalogVersion).isEqualTo(1L);
+        assertThat(cache.isAvailable()).isTrue();
+        verify(sweetRepository, times(2)).findAll();
+    }
+
+    @Test
+    void current_withExpiredSnapshot_shouldFallBackAndRebuild() {
+        // given
+        when(sweetRepository.findAll()).thenReturn(List.of());
+        CatalogSnapshotCache cache = new CatalogSnapshotCache(sweetService, sweetRepository, objectMapper,
+                new SyncTaskExecutor(), Duration.ZERO);
+        cache.current();
+
+        // when
+        Optional<CatalogSnapshot> expired = cache.current();
+
+        // then
+        assertThat(expired).isEmpty();
+        verify(sweetRepository, times(2)).findAll();
+    }
+}
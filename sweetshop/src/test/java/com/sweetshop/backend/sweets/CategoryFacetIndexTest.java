@@ -0,0 +1,111 @@
+package com.sweetshop.backend.sweets;
+
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import com.sweetshop.backend.sweets.facets.CategoryFacetIndex;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CategoryFacetIndexTest {
+
+    private final SweetRepository sweetRepository = mock(SweetRepository.class);
+    private final CategoryFacetIndex index = new CategoryFacetIndex(sweetRepository, new SyncTaskExecutor());
+
+    @BeforeEach
+    void loadCatalog() {
+        when(sweetRepository.streamAll(null)).thenReturn(Stream.of(
+                new Sweet("1", "Dark Chocolate Bar", "Chocolate", new BigDecimal("5.00"), 10),
+                new Sweet("2", "Milk Chocolate Bar", "Chocolate", new BigDecimal("3.00"), 4),
+                new Sweet("3", "Lollipop", "Candy", new BigDecimal("1.50"), 20)
+        ));
+        index.rebuild();
+    }
+
+    @Test
+    void getFacets_shouldSummarizeEachCategory() {
+        // when
+        List<CategoryFacet> facets = index.getFacets().orElseThrow();
+
+        // then
+        assertThat(facets).extracting(CategoryFacet::getCategory).containsExactly("Candy", "Chocolate");
+        CategoryFacet chocolate = facets.get(1);
+        assertThat(chocolate.getCount()).isEqualTo(2);
+        assertThat(chocolate.getMinPrice()).isEqualByComparingTo("3.00");
+        assertThat(chocolate.getMaxPrice()).isEqualByComparingTo("5.00");
+        assertThat(chocolate.getUnitsInStock()).isEqualTo(14);
+        assertThat(chocolate.getStockValue()).isEqualByComparingTo("62.00");
+    }
+
+    @Test
+    void getFacets_beforeLoad_shouldReportSummaryUnavailable() {
+        CategoryFacetIndex unloaded = new CategoryFacetIndex(sweetRepository, new SyncTaskExecutor());
+
+        assertThat(unloaded.getFacets()).isEmpty();
+    }
+
+    @Test
+    void onSweetChanged_shouldReplaceThePreviousContributionOfTheSweet() {
+        // when: the cheapest chocolate bar is sold, then moved to another category, and a lollipop is deleted
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.PURCHASED,
+                new Sweet("2", "Milk Chocolate Bar", "Chocolate", new BigDecimal("3.00"), 1)));
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED,
+                new Sweet("2", "Milk Chocolate Bar", "Bars", new BigDecimal("3.50"), 1)));
+        index.onSweetChanged(SweetChangedEvent.deleted("3"));
+
+        // then
+        List<CategoryFacet> facets = index.getFacets().orElseThrow();
+        assertThat(facets).extracting(CategoryFacet::getCategory).containsExactly("Bars", "Chocolate");
+        assertThat(facets.get(0).getStockValue()).isEqualByComparingTo("3.50");
+        CategoryFacet chocolate = facets.get(1);
+        assertThat(chocolate.getCount()).isEqualTo(1);
+        assertThat(chocolate.getMinPrice()).isEqualByComparingTo("5.00");
+        assertThat(chocolate.getUnitsInStock()).isEqualTo(10);
+        assertThat(chocolate.getStockValue()).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void onSweetChanged_whenEventsArriveOutOfOrder_shouldKeepTheNewestState() {
+        // given
+        Sweet sold = new Sweet("3", "Lollipop", "Candy", new BigDecimal("1.50"), 5);
+        sold.setVersion(2L);
+        Sweet restocked = new Sweet("3", "Lollipop", "Candy", new BigDecimal("1.50"), 30);
+        restocked.setVersion(3L);
+
+        // when: the restock is published before the purchase that preceded it
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.RESTOCKED, restocked));
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.PURCHASED, sold));
+
+        // then
+        CategoryFacet candy = index.getFacets().orElseThrow().get(0);
+        assertThat(candy.getCount()).isEqualTo(1);
+        assertThat(candy.getUnitsInStock()).isEqualTo(30);
+    }
+
+    @Test
+    void onSweetsChanged_shouldApplyTheWholeImportBatch() {
+        // when
+        index.onSweetsChanged(new SweetsChangedEvent(List.of(
+                new SweetChangedEvent(SweetChangedEvent.Type.CREATED,
+                        new Sweet("9", "Barfi", "Indian", new BigDecimal("12.00"), 3)),
+                new SweetChangedEvent(SweetChangedEvent.Type.UPDATED,
+                        new Sweet("3", "Lollipop", "Indian", new BigDecimal("1.50"), 2)))));
+
+        // then
+        List<CategoryFacet> facets = index.getFacets().orElseThrow();
+        assertThat(facets).extracting(CategoryFacet::getCategory).containsExactly("Chocolate", "Indian");
+        assertThat(facets.get(1).getCount()).isEqualTo(2);
+        assertThat(facets.get(1).getUnitsInStock()).isEqualTo(5);
+    }
+}
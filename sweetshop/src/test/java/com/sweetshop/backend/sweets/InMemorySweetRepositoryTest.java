@@ -0,0 +1,153 @@
+package com.sweetshop.backend.sweets;
+
+import com.sweetshop.backend.storage.InMemoryStorage;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.InMemorySweetRepository;
+import com.sweetshop.backend.sweets.repository.SweetImportResult;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySweetRepositoryTest {
+
+    private InMemoryStorage storage;
+    private InMemorySweetRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryStorage("", DataSize.ofKilobytes(64));
+        repository = new InMemorySweetRepository(storage);
+        repository.saveAll(List.of(
+                new Sweet("a1", "Kaju Katli", "Indian", new BigDecimal("25.00"), 10),
+                new Sweet("a2", "Chocolate Truffle", "Chocolate", new BigDecimal("40.00"), 3),
+                new Sweet("a3", "Dark Chocolate Bar", "chocolate", new BigDecimal("15.00"), 0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.destroy();
+    }
+
+    @Test
+    void search_combinesFiltersCaseInsensitively() {
+        // given
+        SweetSearchCriteria criteria = new SweetSearchCriteria("CHOCOLATE", "CHOCOLATE", null, new BigDecimal("20"));
+
+        // when
+        List<Sweet> result = repository.search(criteria);
+
+        // then
+        assertThat(result).extracting(Sweet::getId).containsExactly("a3");
+    }
+
+    @Test
+    void search_byNameSubstring() {
+        // when
+        List<Sweet> result = repository.search(new SweetSearchCriteria("choc", null, null, null));
+
+        // then
+        assertThat(result).extracting(Sweet::getId).containsExactly("a2", "a3");
+    }
+
+    @Test
+    void findPage_continuesAfterLastId() {
+        // when
+        List<Sweet> page = repository.findPage(new SweetSearchCriteria(null, null, null, null), "a1", 1);
+
+        // then
+        assertThat(page).extracting(Sweet::getId).containsExactly("a2");
+    }
+
+    @Test
+    void decrementQuantity_whenInsufficientStock_leavesSweetUnchanged() {
+        // when
+        Optional<Sweet> result = repository.decrementQuantity("a2", 5);
+
+        // then
+        assertThat(result).isEmpty();
+        assertThat(repository.findById("a2")).get().extracting(Sweet::getQuantity).isEqualTo(3);
+    }
+
+    @Test
+    void decrementQuantities_isAllOrNothing() {
+        // when
+        Optional<List<Sweet>> rejected = repository.decrementQuantities(Map.of("a1", 1, "a3", 1));
+        Optional<List<Sweet>> applied = repository.decrementQuantities(Map.of("a1", 2, "a2", 3));
+
+        // then
+        assertThat(rejected).isEmpty();
+        assertThat(applied).get().asList().hasSize(2);
+        assertThat(repository.findById("a1")).get().extracting(Sweet::getQuantity).isEqualTo(8);
+        assertThat(repository.findById("a2")).get().extracting(Sweet::getQuantity).isEqualTo(0);
+    }
+
+    @Test
+    void updateDetails_withStaleVersion_leavesSweetUnchanged() {
+        // given
+        Sweet changes = new Sweet(null, "Kaju Barfi", "Indian", new BigDecimal("30.00"), 10);
+        long version = repository.findById("a1").orElseThrow().getVersion();
+
+        // when
+        Optional<Sweet> applied = repository.updateDetails("a1", changes, version);
+        Optional<Sweet> stale = repository.updateDetails("a1", changes, version);
+
+        // then
+        assertThat(applied).get().extracting(Sweet::getVersion).isEqualTo(version + 1);
+        assertThat(stale).isEmpty();
+        assertThat(repository.findById("a1")).get().extracting(Sweet::getName).isEqualTo("Kaju Barfi");
+    }
+
+    @Test
+    void findAll_sortsByProperty() {
+        // when
+        List<Sweet> result = repository.findAll(Sort.by(Sort.Direction.DESC, "price"));
+
+        // then
+        assertThat(result).extracting(Sweet::getId).containsExactly("a2", "a1", "a3");
+    }
+
+    @Test
+    void save_assignsIdWhenMissing() {
+        // when
+        Sweet saved = repository.save(new Sweet(null, "Ladoo", "Indian", new BigDecimal("5.00"), 1));
+
+        // then
+        assertThat(saved.getId()).isNotBlank();
+        assertThat(repository.findById(saved.getId())).isPresent();
+    }
+
+    @Test
+    void importSweets_insertsNewAndReplacesExistingSweets() {
+        // given
+        Sweet fresh = new Sweet(null, "Barfi", "Indian", new BigDecimal("12.00"), 30);
+        Sweet replacement = new Sweet("a1", "Kaju Katli", "Indian", new BigDecimal("27.50"), 4);
+        Sweet unknownId = new Sweet("new-1", "Jalebi", "Indian", new BigDecimal("6.00"), 15);
+        Long versionBefore = repository.findById("a1").orElseThrow().getVersion();
+
+        // when
+        SweetImportResult result = repository.importSweets(List.of(fresh, replacement, unknownId));
+
+        // then
+        assertThat(result.getFailures()).isEmpty();
+        assertThat(result.isCreated(0)).isTrue();
+        assertThat(result.isCreated(1)).isFalse();
+        assertThat(result.isCreated(2)).isTrue();
+        assertThat(repository.findById("new-1")).get().extracting(Sweet::getVersion).isEqualTo(1L);
+        assertThat(fresh.getId()).isNotNull();
+        assertThat(repository.findById(fresh.getId())).get().extracting(Sweet::getVersion).isEqualTo(0L);
+        Sweet replaced = repository.findById("a1").orElseThrow();
+        assertThat(replaced.getPrice()).isEqualByComparingTo("27.50");
+        assertThat(replaced.getQuantity()).isEqualTo(4);
+        assertThat(replaced.getVersion()).isEqualTo(versionBefore + 1);
+    }
+}
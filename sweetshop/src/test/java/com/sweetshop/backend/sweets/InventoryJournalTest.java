@@ -0,0 +1,184 @@
+package com.sweetshop.backend.sweets;
+
+import com.sweetshop.backend.sweets.dto.InventoryEntry;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.journal.InventoryJournal;
+import com.sweetshop.backend.sweets.model.Sweet;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+class InventoryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<InventoryJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        opened.forEach(InventoryJournal::destroy);
+    }
+
+    @Test
+    void history_shouldListStockChangesNewestFirst() {
+        // given
+        InventoryJournal journal = open(false);
+
+        // when
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.CREATED, "1", 10));
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.PURCHASED, "1", 7));
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.UPDATED, "1", 7));
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.RESTOCKED, "1", 27));
+
+        // then: renaming the sweet left the stock alone, so it is not journaled
+        assertThat(journal.history("1", 10))
+                .extracting(InventoryEntry::getType, InventoryEntry::getChange, InventoryEntry::getQuantity)
+                .containsExactly(
+                        tuple("RESTOCKED", 20, 27),
+                        tuple("PURCHASED", -3, 7),
+                        tuple("CREATED", null, 10));
+        assertThat(journal.history("1", 1)).extracting(InventoryEntry::getSequence).containsExactly(3L);
+    }
+
+    @Test
+    void reopen_shouldRecoverQuantitiesAndHistoryByReplay() {
+        // given
+        InventoryJournal journal = open(false);
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.CREATED, "1", 10));
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.CREATED, "2", 5));
+        journal.onSweetChanged(changed(SweetChangedEvent.Type.PURCHASED, "1", 4));
+        journal.onSweetChanged(SweetChangedEvent.deleted("2"));
+        journal.destroy();
+        opened.remove(journal);
+
+        // when
+        InventoryJournal reopened = open(false);
+        reopened.onSweetChanged(changed(SweetChangedEvent.Type.RESTOCKED, "1", 6));
+
+        // then
+        assertThat(reopened.replay()).containsOnlyKeys("1").containsEntry("1", 6);
+        assertThat(reopened.history("1", 10))
+                .extracting(InventoryEntry::getSequence, InventoryEntry::getChange)
+                .containsExactly(
+                        tuple(5L, 2),
+                        tuple(3L, -6),
+                        tuple(1L, null));
+        assertThat(reopened.history("2", 10)).isEmpty();
+    }
+
+    @Test
+    void onSweetChanged_whenEventsArriveOutOfOrder_shouldKeepTheQuantityOfTheHighestVersion() {
+        // given
+        InventoryJournal journal = open(false);
+        journal.onSweetChanged(versioned(SweetChangedEvent.Type.CREATED, "1", 10, 1L, null));
+
+        // when: a restock (version 3) is published before the purchase (version 2) it followed
+        journal.onSweetChanged(versioned(SweetChangedEvent.Type.RESTOCKED, "1", 25, 3L, 20));
+        journal.onSweetChanged(versioned(SweetChangedEvent.Type.PURCHASED, "1", 5, 2L, -5));
+
+        // then: each entry records what was asked for, and the stock stays at the newest write
+        assertThat(journal.history("1", 10))
+                .extracting(InventoryEntry::getChange, InventoryEntry::getQuantity, InventoryEntry::getVersion)
+                .containsExactly(
+                        tuple(-5, 5, 2L),
+                        tuple(20, 25, 3L),
+                        tuple(null, 10, 1L));
+        assertThat(journal.replay()).containsEntry("1", 25);
+    }
+
+    @Test
+    void onSweetChanged_acrossSegments_shouldCheckpointAndDeleteCoveredSegments() throws Exception {
+        // given: enough records to fill several 64KB segments
+        InventoryJournal journal = open(false);
+        int records = 5000;
+        for (int i = 1; i <= records; i++) {
+            String id = Integer.toString(i % 3);
+            journal.onSweetChanged(versioned(SweetChangedEvent.Type.RESTOCKED, id, i, (long) i, 1));
+        }
+        journal.destroy();
+        opened.remove(journal);
+
+        // when
+        InventoryJournal reopened = open(false);
+
+        // then
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).sorted().toList();
+            assertThat(names).filteredOn(name -> name.contains("-checkpoint-")).hasSize(1);
+            assertThat(names).filteredOn(name -> name.endsWith(".log")).hasSizeLessThanOrEqualTo(2);
+        }
+        assertThat(reopened.replay()).containsOnly(entry("0", 4998), entry("1", 4999), entry("2", 5000));
+        assertThat(reopened.history("2", 2))
+                .extracting(InventoryEntry::getSequence, InventoryEntry::getQuantity)
+                .containsExactly(tuple(5000L, 5000), tuple(4997L, 4997));
+    }
+
+    @Test
+    void onSweetChanged_withSyncCommit_shouldShareOneFsyncAcrossConcurrentWriters() throws Exception {
+        // given
+        InventoryJournal journal = open(true);
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when
+        for (int i = 0; i < writers; i++) {
+            String id = Integer.toString(i);
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                journal.onSweetChanged(changed(SweetChangedEvent.Type.RESTOCKED, id, 1));
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // then: every writer returned only after its record was forced, in fewer fsyncs than records
+        DistributionSummary batches = meterRegistry.get("sweetshop.journal.commit.batch").summary();
+        assertThat(batches.totalAmount()).isEqualTo(writers);
+        assertThat(batches.count()).isLessThan(writers);
+    }
+
+    private InventoryJournal open(boolean syncCommit) {
+        InventoryJournal journal = new InventoryJournal(directory.toString(), DataSize.ofKilobytes(64),
+                Duration.ofMillis(50), syncCommit, 100, meterRegistry);
+        opened.add(journal);
+        return journal;
+    }
+
+    private static SweetChangedEvent versioned(SweetChangedEvent.Type type, String id, int quantity, Long version,
+                                               Integer quantityChange) {
+        Sweet sweet = new Sweet(id, "Toffee", "Candy", new BigDecimal("1.00"), quantity);
+        sweet.setVersion(version);
+        return new SweetChangedEvent(type, sweet, quantityChange);
+    }
+
+    private static SweetChangedEvent changed(SweetChangedEvent.Type type, String id, int quantity) {
+        return new SweetChangedEvent(type, new Sweet(id, "Toffee", "Candy", new BigDecimal("1.00"), quantity));
+    }
+}
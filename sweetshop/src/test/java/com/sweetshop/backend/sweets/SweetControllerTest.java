@@ -1,9 +1,23 @@
 package com.sweetshop.backend.sweets;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.google.protobuf.UnknownFieldSet;
 import com.sweetshop.backend.sweets.controller.SweetController;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseRequest;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.dto.PurchaseLine;
+import com.sweetshop.backend.sweets.dto.PurchaseLineResult;
+import com.sweetshop.backend.sweets.dto.PurchaseLineStatus;
+import com.sweetshop.backend.sweets.dto.SweetPage;
+import com.sweetshop.backend.sweets.exception.SweetVersionConflictException;
 import com.sweetshop.backend.sweets.model.Sweet;
 import com.sweetshop.backend.sweets.service.SweetService;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshot;
+import com.sweetshop.backend.sweets.snapshot.CatalogSnapshotCache;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
@@ -12,14 +26,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -43,6 +68,9 @@ class SweetControllerTest {
     @MockBean
     private SweetService sweetService;
 
+    @MockBean
+    private CatalogSnapshotCache catalogSnapshots;
+
     @Test
     void getAllSweets_shouldReturnListOfSweets() throws Exception {
         // given
@@ -60,6 +88,176 @@ class SweetControllerTest {
                 .andExpect(jsonPath("$[1].name").value("Lollipop"));
     }
 
+    @Test
+    void getAllSweets_withCurrentSnapshot_shouldWriteItsBytes() throws Exception {
+        // given
+        byte[] json = "[{\"id\":\"1\",\"name\":\"Chocolate\"}]".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {31, -117, 8, 0};
+        when(catalogSnapshots.current()).thenReturn(Optional.of(new CatalogSnapshot(0, System.nanoTime(), json, gzip)));
+
+        // when + then
+        mockMvc.perform(get("/api/sweets"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(json))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"));
+        mockMvc.perform(get("/api/sweets").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().bytes(gzip));
+        verify(sweetService, never()).getAllSweets();
+    }
+
+    @Test
+    void getAllSweets_withSnapshotOfAnEarlierVersion_shouldLabelItWithThatVersion() throws Exception {
+        // given
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(sweetService.getCatalogVersion()).thenReturn(5L);
+        when(catalogSnapshots.current()).thenReturn(Optional.of(new CatalogSnapshot(4, System.nanoTime(), json, json)));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/sweets")).andExpect(status().isOk()).andReturn();
+
+        // then
+        assertThat(result.getResponse().getHeaders(HttpHeaders.ETAG)).hasSize(1);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).startsWith("W/\"").endsWith("-4-json\"");
+    }
+
+    @Test
+    void getAllSweets_refusingGzip_shouldWriteUncompressedSnapshot() throws Exception {
+        // given
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {31, -117, 8, 0};
+        when(catalogSnapshots.current()).thenReturn(Optional.of(new CatalogSnapshot(0, System.nanoTime(), json, gzip)));
+
+        // when + then
+        mockMvc.perform(get("/api/sweets").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(json));
+        mockMvc.perform(get("/api/sweets").header(HttpHeaders.ACCEPT_ENCODING, "br, *;q=0.1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    void getAllSweets_acceptingCbor_shouldBypassSnapshotAndWriteCbor() throws Exception {
+        // given
+        when(sweetService.getAllSweets()).thenReturn(List.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/sweets").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+
+        // then
+        JsonNode sweets = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertThat(sweets.get(0).get("name").asText()).isEqualTo("Chocolate");
+        assertThat(sweets.get(0).get("price").decimalValue()).isEqualByComparingTo("5.99");
+        verify(catalogSnapshots, never()).current();
+    }
+
+    @Test
+    void getAllSweets_preferringJsonOverCbor_shouldUseSnapshot() throws Exception {
+        // given
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(catalogSnapshots.current()).thenReturn(Optional.of(new CatalogSnapshot(0, System.nanoTime(), json, json)));
+
+        // when + then
+        mockMvc.perform(get("/api/sweets").header(HttpHeaders.ACCEPT, "application/cbor;q=0.5, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(json));
+    }
+
+    @Test
+    void getAllSweets_acceptingProtobuf_shouldWriteSweetList() throws Exception {
+        // given
+        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
+        sweet.setVersion(3L);
+        when(sweetService.getSweetsPage(any(), isNull(), eq(1))).thenReturn(new SweetPage(List.of(sweet), "next-token"));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/sweets").param("limit", "1").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andReturn();
+
+        // then
+        UnknownFieldSet list = UnknownFieldSet.parseFrom(result.getResponse().getContentAsByteArray());
+        assertThat(list.getField(2).getLengthDelimitedList().get(0).toStringUtf8()).isEqualTo("next-token");
+        UnknownFieldSet item = UnknownFieldSet.parseFrom(list.getField(1).getLengthDelimitedList().get(0));
+        assertThat(item.getField(2).getLengthDelimitedList().get(0).toStringUtf8()).isEqualTo("Chocolate");
+        assertThat(item.getField(5).getVarintList()).containsExactly(100L);
+        assertThat(item.getField(7).getVarintList()).containsExactly(3L);
+        UnknownFieldSet price = UnknownFieldSet.parseFrom(item.getField(4).getLengthDelimitedList().get(0));
+        assertThat(new BigInteger(price.getField(1).getLengthDelimitedList().get(0).toByteArray()))
+                .isEqualTo(BigInteger.valueOf(599));
+        assertThat(price.getField(2).getVarintList()).containsExactly(2L);
+    }
+
+    @Test
+    void getSweet_acceptingProtobuf_withPriceBeyondLongRange_shouldWriteItExactly() throws Exception {
+        // given
+        BigDecimal price = new BigDecimal("-123456789012345678901234.5678");
+        when(sweetService.getSweet("1")).thenReturn(new Sweet("1", "Saffron Box", "Gifts", price, 1));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/sweets/1").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // then
+        UnknownFieldSet sweet = UnknownFieldSet.parseFrom(result.getResponse().getContentAsByteArray());
+        UnknownFieldSet decimal = UnknownFieldSet.parseFrom(sweet.getField(4).getLengthDelimitedList().get(0));
+        BigInteger unscaled = new BigInteger(decimal.getField(1).getLengthDelimitedList().get(0).toByteArray());
+        assertThat(new BigDecimal(unscaled, decimal.getField(2).getVarintList().get(0).intValue())).isEqualTo(price);
+    }
+
+    @Test
+    void searchSweets_acceptingSmile_shouldWriteSmile() throws Exception {
+        // given
+        when(sweetService.searchSweets("Choc", null, null, null))
+                .thenReturn(List.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/sweets/search").param("name", "Choc")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // then
+        JsonNode sweets = new SmileMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertThat(sweets.get(0).get("name").asText()).isEqualTo("Chocolate");
+    }
+
+    @Test
+    void getCategoryFacets_acceptingProtobuf_shouldBeNotAcceptable() throws Exception {
+        // given
+        when(sweetService.getCategoryFacets()).thenReturn(List.of(new CategoryFacet("Candy", 1,
+                BigDecimal.ONE, BigDecimal.ONE, 1, BigDecimal.ONE)));
+
+        // when + then
+        mockMvc.perform(get("/api/sweets/facets").accept("application/x-protobuf"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void getAllSweets_withLimit_shouldReturnPage() throws Exception {
+        // given
+        SweetPage page = new SweetPage(List.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)), "next-token");
+        when(sweetService.getSweetsPage(any(), isNull(), eq(1))).thenReturn(page);
+
+        // when + then
+        mockMvc.perform(get("/api/sweets").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Chocolate"))
+                .andExpect(jsonPath("$.next").value("next-token"));
+
+        verify(sweetService, never()).getAllSweets();
+    }
+
     @Test
     void createSweet_shouldReturnCreatedSweet() throws Exception {
         // given
@@ -108,11 +306,83 @@ class SweetControllerTest {
         verify(sweetService, times(1)).purchaseSweet("1", 10);
     }
 
+    @Test
+    void purchaseSweets_shouldReturnLineResults() throws Exception {
+        // given
+        BatchPurchaseRequest request = new BatchPurchaseRequest(List.of(new PurchaseLine("1", 10)));
+        BatchPurchaseResponse response = new BatchPurchaseResponse(true,
+                List.of(new PurchaseLineResult("1", 10, PurchaseLineStatus.PURCHASED, 90)),
+                List.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 90)));
+        when(sweetService.purchaseSweets(anyList())).thenReturn(response);
+
+        // when + then
+        mockMvc.perform(post("/api/sweets/purchase/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.lines[0].status").value("PURCHASED"))
+                .andExpect(jsonPath("$.sweets[0].quantity").value(90));
+    }
+
+    @Test
+    void purchaseSweets_withLineShortOfStock_shouldReturnConflictWithLineResults() throws Exception {
+        // given
+        BatchPurchaseRequest request = new BatchPurchaseRequest(
+                List.of(new PurchaseLine("1", 2), new PurchaseLine("2", 99)));
+        BatchPurchaseResponse response = new BatchPurchaseResponse(false,
+                List.of(new PurchaseLineResult("1", 2, PurchaseLineStatus.NOT_APPLIED, 100),
+                        new PurchaseLineResult("2", 99, PurchaseLineStatus.INSUFFICIENT_STOCK, 5)),
+                List.of());
+        when(sweetService.purchaseSweets(anyList())).thenReturn(response);
+
+        // when + then
+        mockMvc.perform(post("/api/sweets/purchase/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.completed").value(false))
+                .andExpect(jsonPath("$.lines[1].status").value("INSUFFICIENT_STOCK"));
+    }
+
+    @Test
+    void purchaseSweets_withEmptyBasket_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/sweets/purchase/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchPurchaseRequest(List.of()))))
+                .andExpect(status().isBadRequest());
+
+        verify(sweetService, never()).purchaseSweets(anyList());
+    }
+
+    @Test
+    void exportSweets_shouldStreamNewlineDelimitedJson() throws Exception {
+        // given
+        when(sweetService.exportSweets(null)).thenReturn(Stream.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100),
+                new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 50)
+        ));
+
+        // when
+        MvcResult started = mockMvc.perform(get("/api/sweets/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], Sweet.class).getName()).isEqualTo("Lollipop");
+    }
+
     @Test
     void updateSweet_shouldReturnUpdatedSweet() throws Exception {
         // given
         Sweet sweet = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
-        when(sweetService.updateSweet(eq("1"), any(Sweet.class))).thenReturn(sweet);
+        when(sweetService.updateSweet(eq("1"), any(Sweet.class), isNull())).thenReturn(sweet);
 
         // when + then
         mockMvc.perform(put("/api/sweets/1")
@@ -121,7 +391,124 @@ class SweetControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Dark Chocolate"));
 
-        verify(sweetService, times(1)).updateSweet(eq("1"), any(Sweet.class));
+        verify(sweetService, times(1)).updateSweet(eq("1"), any(Sweet.class), isNull());
+    }
+
+    @Test
+    void updateSweet_withIfMatch_shouldUpdateConditionally() throws Exception {
+        // given
+        Sweet sweet = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
+        Sweet saved = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
+        saved.setVersion(4L);
+        when(sweetService.updateSweet(eq("1"), any(Sweet.class), eq(3L))).thenReturn(saved);
+
+        // when + then
+        mockMvc.perform(put("/api/sweets/1")
+                        .header("If-Match", "\"v3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sweet)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v4\""));
+    }
+
+    @Test
+    void updateSweet_withStaleIfMatch_shouldReturnPreconditionFailed() throws Exception {
+        // given
+        Sweet sweet = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
+        when(sweetService.updateSweet(eq("1"), any(Sweet.class), eq(2L)))
+                .thenThrow(new SweetVersionConflictException("Sweet 1 was modified by someone else, reload it and retry"));
+
+        // when + then
+        mockMvc.perform(put("/api/sweets/1")
+                        .header("If-Match", "\"v2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sweet)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void getSweet_withCurrentETag_shouldReturnNotModified() throws Exception {
+        // given
+        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
+        sweet.setVersion(7L);
+        when(sweetService.getSweet("1")).thenReturn(sweet);
+
+        // when + then
+        mockMvc.perform(get("/api/sweets/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v7\""));
+        mockMvc.perform(get("/api/sweets/1").header("If-None-Match", "\"v7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getAllSweets_withCurrentCatalogETag_shouldNotLoadSweets() throws Exception {
+        // given
+        when(sweetService.getCatalogVersion()).thenReturn(12L);
+        when(sweetService.getAllSweets()).thenReturn(List.of());
+        String etag = mockMvc.perform(get("/api/sweets"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // when + then
+        mockMvc.perform(get("/api/sweets").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(sweetService, times(1)).getAllSweets();
+
+        when(sweetService.getCatalogVersion()).thenReturn(13L);
+        mockMvc.perform(get("/api/sweets").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        verify(sweetService, times(2)).getAllSweets();
+    }
+
+    @Test
+    void getAllSweets_shouldNameTheRepresentationInTheCatalogETag() throws Exception {
+        // given
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(catalogSnapshots.current()).thenReturn(Optional.of(new CatalogSnapshot(0, System.nanoTime(), json, json)));
+        when(sweetService.getSweetsPage(any(), isNull(), anyInt())).thenReturn(new SweetPage(List.of(), null));
+
+        // when
+        String plain = catalogETag(get("/api/sweets"));
+        String gzipped = catalogETag(get("/api/sweets").header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        String cbor = catalogETag(get("/api/sweets").param("limit", "5").accept("application/cbor"));
+        String protobuf = catalogETag(get("/api/sweets").param("limit", "5").accept("application/x-protobuf"));
+
+        // then
+        assertThat(plain).startsWith("W/\"").endsWith("-0-json\"");
+        assertThat(gzipped).endsWith("-0-json-gz\"");
+        assertThat(cbor).endsWith("-0-cbor\"");
+        assertThat(protobuf).endsWith("-0-protobuf\"");
+        mockMvc.perform(get("/api/sweets").param("limit", "5").accept("application/cbor")
+                        .header(HttpHeaders.IF_NONE_MATCH, plain))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/sweets").param("limit", "5").accept("application/cbor")
+                        .header(HttpHeaders.IF_NONE_MATCH, cbor))
+                .andExpect(status().isNotModified());
+    }
+
+    private String catalogETag(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void getCategoryFacets_shouldReturnSummaryPerCategory() throws Exception {
+        // given
+        when(sweetService.getCategoryFacets()).thenReturn(List.of(new CategoryFacet("Candy", 2,
+                new BigDecimal("1.50"), new BigDecimal("2.99"), 70, new BigDecimal("179.50"))));
+
+        // when + then
+        mockMvc.perform(get("/api/sweets/facets"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].category").value("Candy"))
+                .andExpect(jsonPath("$[0].count").value(2))
+                .andExpect(jsonPath("$[0].minPrice").value(1.50))
+                .andExpect(jsonPath("$[0].unitsInStock").value(70))
+                .andExpect(jsonPath("$[0].stockValue").value(179.50));
     }
 
     @Test
@@ -0,0 +1,158 @@
+package com.sweetshop.backend.sweets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sweetshop.backend.sweets.bulk.SweetImporter;
+import com.sweetshop.backend.sweets.dto.ImportError;
+import com.sweetshop.backend.sweets.dto.ImportReport;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetImportResult;
+import com.sweetshop.backend.sweets.service.SweetService;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SweetImporterTest {
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final SweetService sweetService = mock(SweetService.class);
+    private final List<List<String>> batches = new ArrayList<>();
+
+    SweetImporterTest() {
+        when(sweetService.importSweets(anyList())).thenAnswer(invocation -> {
+            List<Sweet> batch = invocation.getArgument(0);
+            batches.add(batch.stream().map(Sweet::getName).toList());
+            Set<Integer> created = IntStream.range(0, batch.size()).filter(i -> batch.get(i).getId() == null)
+                    .boxed().collect(Collectors.toSet());
+            return new SweetImportResult(created, Map.of());
+        });
+    }
+
+    @Test
+    void importNdjson_shouldWriteValidRowsInBatchesAndReportTheRest() throws Exception {
+        // given
+        String body = """
+                {"name":"Barfi","category":"Indian","price":12.00,"quantity":30}
+                {"name":"Toffee","category":"Candy","price":-1,"quantity":10}
+                {"id":"s3","name":"Ladoo","category":"Indian","price":8.50,"quantity":12,"version":7}
+                {"name":"Fudge","category":"Candy","price":"cheap","quantity":5}
+                {"name":"Halwa","category":"Indian","price":9.00,"quantity":20}
+                """;
+
+        // when
+        ImportReport report = importer(2, 100).importNdjson(stream(body));
+
+        // then
+        assertThat(batches).containsExactly(List.of("Barfi", "Ladoo"), List.of("Halwa"));
+        assertThat(report.getReceived()).isEqualTo(5);
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(ImportError::getLine).containsExactly(2L, 4L);
+        assertThat(report.getErrors().get(0).getMessage()).isEqualTo("Price must be positive");
+        assertThat(report.isErrorsTruncated()).isFalse();
+    }
+
+    @Test
+    void importCsv_shouldMapColumnsByHeader() throws Exception {
+        // given
+        String body = """
+                id,name,category,price,quantity
+                ,Barfi,Indian,12.00,30
+                s2,"Caramel, Salted",Candy,3.25,40
+                ,,Candy,1.00,5
+                """;
+
+        // when
+        ImportReport report = importer(500, 100).importCsv(stream(body));
+
+        // then
+        assertThat(batches).containsExactly(List.of("Barfi", "Caramel, Salted"));
+        assertThat(report.getCreated()).isEqualTo(1);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(4);
+            assertThat(error.getMessage()).isEqualTo("Name is required");
+        });
+    }
+
+    @Test
+    void importNdjson_shouldCapTheErrorList() throws Exception {
+        // given
+        String body = "{\"name\":\"\",\"category\":\"Candy\",\"price\":1,\"quantity\":1}\n".repeat(5);
+
+        // when
+        ImportReport report = importer(500, 2).importNdjson(stream(body));
+
+        // then
+        assertThat(report.getFailed()).isEqualTo(5);
+        assertThat(report.getErrors()).hasSize(2);
+        assertThat(report.isErrorsTruncated()).isTrue();
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    void importNdjson_shouldReportRowsTheStoreRejected() throws Exception {
+        // given
+        when(sweetService.importSweets(anyList())).thenReturn(
+                new SweetImportResult(Set.of(0), Map.of(1, "E11000 duplicate key error")));
+        String body = """
+                {"name":"Barfi","category":"Indian","price":12.00,"quantity":30}
+                {"id":"s2","name":"Ladoo","category":"Indian","price":8.50,"quantity":12}
+                """;
+
+        // when
+        ImportReport report = importer(500, 100).importNdjson(stream(body));
+
+        // then
+        assertThat(report.getCreated()).isEqualTo(1);
+        assertThat(report.getUpdated()).isZero();
+        assertThat(report.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(2);
+            assertThat(error.getId()).isEqualTo("s2");
+        });
+    }
+
+    @Test
+    void importNdjson_withMalformedJson_shouldStopAndKeepEarlierRows() throws Exception {
+        // given
+        String body = """
+                {"name":"Barfi","category":"Indian","price":12.00,"quantity":30}
+                {"name":"Ladoo",
+                """;
+
+        // when
+        ImportReport report = importer(500, 100).importNdjson(stream(body));
+
+        // then
+        assertThat(batches).containsExactly(List.of("Barfi"));
+        assertThat(report.getCreated()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getMessage()).startsWith("Malformed input, import stopped"));
+    }
+
+    private SweetImporter importer(int batchSize, int maxErrors) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new SweetImporter(sweetService, VALIDATOR, objectMapper, batchSize, maxErrors);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package com.sweetshop.backend.sweets;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetImportResult;
+import com.sweetshop.backend.sweets.repository.SweetRepositoryCustomImpl;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.TransientClientSessionException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SweetRepositoryCustomImplTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MongoTransactionManager transactionManager = mock(MongoTransactionManager.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final SweetRepositoryCustomImpl repository = new SweetRepositoryCustomImpl(mongoTemplate, transactionManager);
+
+    SweetRepositoryCustomImplTest() {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Sweet.class)).thenReturn(bulk);
+    }
+
+    @Test
+    void decrementQuantities_shouldRetryAfterWriteConflict() {
+        // given
+        MongoException conflict = new MongoException(112, "WriteConflict");
+        conflict.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getModifiedCount()).thenReturn(1);
+        when(bulk.execute())
+                .thenThrow(new TransientClientSessionException("WriteConflict", conflict))
+                .thenReturn(result);
+        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 9);
+        when(mongoTemplate.find(any(Query.class), eq(Sweet.class))).thenReturn(List.of(sweet));
+
+        // when
+        Optional<List<Sweet>> updated = repository.decrementQuantities(Map.of("1", 1));
+
+        // then
+        assertThat(updated).contains(List.of(sweet));
+        verify(bulk, times(2)).execute();
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void decrementQuantities_shouldGiveUpAfterBoundedAttempts() {
+        // given
+        MongoException conflict = new MongoException(112, "WriteConflict");
+        when(bulk.execute()).thenThrow(new UncategorizedMongoDbException("WriteConflict", conflict));
+
+        // when + then
+        assertThatThrownBy(() -> repository.decrementQuantities(Map.of("1", 1)))
+                .isInstanceOf(UncategorizedMongoDbException.class);
+        verify(bulk, times(3)).execute();
+    }
+
+    @Test
+    void decrementQuantities_shouldNotRetryOtherFailures() {
+        // given
+        when(bulk.execute()).thenThrow(new UncategorizedMongoDbException("boom", new MongoException(2, "BadValue")));
+
+        // when + then
+        assertThatThrownBy(() -> repository.decrementQuantities(Map.of("1", 1)))
+                .isInstanceOf(UncategorizedMongoDbException.class);
+        verify(bulk, times(1)).execute();
+    }
+
+    @Test
+    void importSweets_shouldReportUpsertsThatInsertedAsCreated() {
+        // given
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getUpserts()).thenReturn(List.of(new BulkWriteUpsert(1, new BsonString("new-1"))));
+        when(bulk.execute()).thenReturn(result);
+        Sweet existing = new Sweet("a1", "Kaju Katli", "Indian", new BigDecimal("27.50"), 4);
+        Sweet unknownId = new Sweet("new-1", "Jalebi", "Indian", new BigDecimal("6.00"), 15);
+        Sweet fresh = new Sweet(null, "Barfi", "Indian", new BigDecimal("12.00"), 30);
+
+        // when
+        SweetImportResult imported = repository.importSweets(List.of(existing, unknownId, fresh));
+
+        // then
+        assertThat(imported.getFailures()).isEmpty();
+        assertThat(imported.isCreated(0)).isFalse();
+        assertThat(imported.isCreated(1)).isTrue();
+        assertThat(imported.isCreated(2)).isTrue();
+    }
+}
@@ -0,0 +1,84 @@
+package com.sweetshop.backend.sweets;
+
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SweetSearchCriteriaTest {
+
+    @Test
+    void toQuery_withAllFilters_shouldBuildSingleQuery() {
+        // given
+        SweetSearchCriteria criteria = new SweetSearchCriteria("Choc", "Candy", new BigDecimal("1"), new BigDecimal("10"));
+
+        // when
+        Query query = criteria.toQuery();
+        Document filter = query.getQueryObject();
+
+        // then
+        assertThat(filter.get("category")).isEqualTo("Candy");
+        assertThat(filter.get("price", Document.class))
+                .containsEntry("$gte", new BigDecimal("1"))
+                .containsEntry("$lte", new BigDecimal("10"));
+        assertThat(filter).containsKey("name");
+        assertThat(query.getCollation()).contains(SweetSearchCriteria.CASE_INSENSITIVE);
+    }
+
+    @Test
+    void toQuery_withBlankFilters_shouldMatchEverything() {
+        // given
+        SweetSearchCriteria criteria = new SweetSearchCriteria(" ", "", null, null);
+
+        // then
+        assertThat(criteria.isEmpty()).isTrue();
+        assertThat(criteria.toQuery().getQueryObject()).isEmpty();
+        assertThat(criteria.toQuery().getCollation()).isEmpty();
+    }
+
+    @Test
+    void toQuery_shouldEscapeRegexCharactersInName() {
+        // given
+        SweetSearchCriteria criteria = new SweetSearchCriteria("a.b*", null, null, null);
+
+        // when
+        Object name = criteria.toQuery().getQueryObject().get("name");
+
+        // then
+        assertThat(name.toString()).contains("\\Qa.b*\\E");
+    }
+
+    @Test
+    void priceFilter_shouldCompareNumericallyAgainstStoredPrices() {
+        // given
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        SweetSearchCriteria criteria = new SweetSearchCriteria(null, null, new BigDecimal("9.00"), null);
+
+        // when
+        Document stored = new Document();
+        converter.write(new Sweet(null, "Toffee", "Candy", new BigDecimal("10.00"), 1), stored);
+        Document filter = new QueryMapper(converter).getMappedObject(criteria.toQuery().getQueryObject(),
+                mappingContext.getPersistentEntity(Sweet.class));
+
+        // then: both sides are Decimal128, so "10.00" no longer sorts before "9.00"
+        assertThat(stored.get("price")).isEqualTo(new Decimal128(new BigDecimal("10.00")));
+        assertThat(filter.get("price", Document.class)).containsEntry("$gte", new Decimal128(new BigDecimal("9.00")));
+    }
+}
@@ -0,0 +1,94 @@
+package com.sweetshop.backend.sweets;
+
+import com.sweetshop.backend.sweets.dto.SweetSuggestion;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.search.SweetSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SweetSearchIndexTest {
+
+    private final SweetRepository sweetRepository = mock(SweetRepository.class);
+    private final SweetSearchIndex index = new SweetSearchIndex(sweetRepository, new SyncTaskExecutor());
+
+    @BeforeEach
+    void loadCatalog() {
+        when(sweetRepository.streamAll(null)).thenReturn(Stream.of(
+                new Sweet("1", "Dark Chocolate Bar", "Chocolate", new BigDecimal("5.99"), 100),
+                new Sweet("2", "Chocolate", "Candy", new BigDecimal("3.99"), 100),
+                new Sweet("3", "Lollipop", "Candy", new BigDecimal("2.99"), 50),
+                new Sweet("4", "Caramel Fudge", "Fudge", new BigDecimal("4.49"), 20)
+        ));
+        index.rebuild();
+    }
+
+    @Test
+    void suggest_beforeLoad_shouldReturnNothing() {
+        SweetSearchIndex unloaded = new SweetSearchIndex(sweetRepository, new SyncTaskExecutor());
+
+        assertThat(unloaded.suggest("choc", 10)).isEmpty();
+    }
+
+    @Test
+    void suggest_shouldRankNamePrefixesFirst() {
+        assertThat(index.suggest("choc", 10))
+                .extracting(SweetSuggestion::getId)
+                .containsExactly("2", "1");
+        assertThat(index.suggest("dark ch", 10))
+                .extracting(SweetSuggestion::getId)
+                .containsExactly("1");
+        assertThat(index.suggest("fud", 1)).hasSize(1);
+    }
+
+    @Test
+    void rankedSearch_shouldTolerateTypos() {
+        assertThat(index.rankedSearch("choclate", 10)).containsExactly("2", "1");
+        assertThat(index.rankedSearch("lolipop", 10)).containsExactly("3");
+    }
+
+    @Test
+    void onSweetChanged_shouldKeepIndexCurrent() {
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED,
+                new Sweet("3", "Mint Lollipop", "Candy", new BigDecimal("2.99"), 50)));
+        index.onSweetChanged(SweetChangedEvent.deleted("2"));
+
+        assertThat(index.suggest("mint", 10)).extracting(SweetSuggestion::getId).containsExactly("3");
+        assertThat(index.suggest("choc", 10)).extracting(SweetSuggestion::getId).containsExactly("1");
+    }
+
+    @Test
+    void onSweetChanged_shouldIgnoreEventsOlderThanTheIndexedSweet() {
+        Sweet renamed = new Sweet("3", "Mint Lollipop", "Candy", new BigDecimal("2.99"), 50);
+        renamed.setVersion(5L);
+        Sweet older = new Sweet("3", "Lollipop", "Candy", new BigDecimal("2.99"), 49);
+        older.setVersion(4L);
+
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, renamed));
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, older));
+
+        assertThat(index.suggest("mint", 10)).extracting(SweetSuggestion::getId).containsExactly("3");
+    }
+
+    @Test
+    void onSweetChanged_withUnchangedName_shouldStillOrderLaterRenames() {
+        Sweet stock = new Sweet("3", "Lollipop", "Candy", new BigDecimal("2.99"), 49);
+        stock.setVersion(7L);
+        Sweet staleRename = new Sweet("3", "Mint Lollipop", "Candy", new BigDecimal("2.99"), 50);
+        staleRename.setVersion(6L);
+
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, stock));
+        index.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, staleRename));
+
+        assertThat(index.suggest("mint", 10)).isEmpty();
+    }
+}
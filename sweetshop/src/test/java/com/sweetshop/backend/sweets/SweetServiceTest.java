@@ -1,26 +1,60 @@
 package com.sweetshop.backend.sweets;
 
+import com.sweetshop.backend.sweets.cache.SweetCache;
+import com.sweetshop.backend.sweets.dto.BatchPurchaseResponse;
+import com.sweetshop.backend.sweets.dto.CategoryFacet;
+import com.sweetshop.backend.sweets.dto.PurchaseLine;
+import com.sweetshop.backend.sweets.dto.PurchaseLineStatus;
+import com.sweetshop.backend.sweets.dto.SweetPage;
 import com.sweetshop.backend.sweets.exception.InsufficientStockException;
 import com.sweetshop.backend.sweets.exception.SweetNotFoundException;
+import com.sweetshop.backend.sweets.exception.SweetVersionConflictException;
+import com.sweetshop.backend.sweets.facets.CategoryFacetIndex;
 import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.repository.SweetImportResult;
 import com.sweetshop.backend.sweets.repository.SweetRepository;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.event.SweetsChangedEvent;
+import com.sweetshop.backend.sweets.repository.SweetSearchCriteria;
+import com.sweetshop.backend.sweets.search.SweetSearchIndex;
 import com.sweetshop.backend.sweets.service.SweetService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.SyncTaskExecutor;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 class SweetServiceTest {
 
     private final SweetRepository sweetRepository = mock(SweetRepository.class);
-    private final SweetService sweetService = new SweetService(sweetRepository);
+    private final SweetCache sweetCache = new SweetCache(1000, Duration.ofMinutes(1));
+    private final SweetSearchIndex searchIndex = new SweetSearchIndex(sweetRepository, new SyncTaskExecutor());
+    private final CategoryFacetIndex facetIndex = new CategoryFacetIndex(sweetRepository, new SyncTaskExecutor());
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SweetService sweetService =
+            new SweetService(sweetRepository, sweetCache, searchIndex, facetIndex, eventPublisher, meterRegistry);
 
     @Test
     void createSweet_shouldSaveAndReturnSweet() {
@@ -56,13 +90,81 @@ class SweetServiceTest {
         assertThat(result.get(0).getName()).isEqualTo("Chocolate");
     }
 
+    @Test
+    void getAllSweets_shouldServeRepeatedReadsFromCache() {
+        // given
+        when(sweetRepository.findAll()).thenReturn(List.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)
+        ));
+
+        // when
+        sweetService.getAllSweets();
+        sweetService.getAllSweets();
+
+        // then
+        verify(sweetRepository, times(1)).findAll();
+        assertThat(sweetCache.queryStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void purchaseSweet_shouldInvalidateCachedCatalogAndRefreshSweet() {
+        // given
+        when(sweetRepository.findAll()).thenReturn(List.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)
+        ));
+        when(sweetRepository.findById("1")).thenReturn(Optional.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100)
+        ));
+        when(sweetRepository.decrementQuantity("1", 10)).thenReturn(Optional.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 90)
+        ));
+        sweetService.getAllSweets();
+        sweetService.getSweet("1");
+
+        // when
+        sweetService.purchaseSweet("1", 10);
+
+        // then
+        assertThat(sweetService.getSweet("1").getQuantity()).isEqualTo(90);
+        sweetService.getAllSweets();
+        verify(sweetRepository, times(2)).findAll();
+        verify(sweetRepository, times(1)).findById("1");
+    }
+
+    @Test
+    void cachedSweet_shouldKeepNewerVersionWhenWritesReportOutOfOrder() {
+        // given
+        Sweet newer = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 80);
+        newer.setVersion(3L);
+        Sweet older = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 90);
+        older.setVersion(2L);
+
+        // when
+        sweetCache.put(newer);
+        sweetCache.put(older);
+
+        // then
+        assertThat(sweetService.getSweet("1").getQuantity()).isEqualTo(80);
+        verify(sweetRepository, never()).findById("1");
+    }
+
+    @Test
+    void getSweet_withNonExistentId_shouldThrowException() {
+        // given
+        when(sweetRepository.findById("999")).thenReturn(Optional.empty());
+
+        // then
+        assertThatThrownBy(() -> sweetService.getSweet("999"))
+                .isInstanceOf(SweetNotFoundException.class);
+    }
+
     @Test
     void searchSweets_byName_shouldReturnMatchingSweets() {
         // given
         List<Sweet> sweets = Arrays.asList(
                 new Sweet("1", "Chocolate Bar", "Candy", new BigDecimal("5.99"), 100)
         );
-        when(sweetRepository.findByNameContainingIgnoreCase("Chocolate")).thenReturn(sweets);
+        when(sweetRepository.search(any(SweetSearchCriteria.class))).thenReturn(sweets);
 
         // when
         List<Sweet> result = sweetService.searchSweets("Chocolate", null, null, null);
@@ -72,110 +174,324 @@ class SweetServiceTest {
         assertThat(result.get(0).getName()).contains("Chocolate");
     }
 
+    @Test
+    void searchSweets_byName_withSweetMissingFromIndex_shouldStillFindItInDatabase() {
+        // given
+        when(sweetRepository.streamAll(null)).thenReturn(Stream.of(
+                new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("5.99"), 100)
+        ));
+        searchIndex.rebuild();
+        Sweet createdElsewhere = new Sweet("2", "Toffee", "Candy", new BigDecimal("1.99"), 30);
+        when(sweetRepository.search(new SweetSearchCriteria("toffee", null, null, null)))
+                .thenReturn(List.of(createdElsewhere));
+
+        // when
+        List<Sweet> result = sweetService.searchSweets("toffee", null, null, null);
+
+        // then
+        assertThat(result).containsExactly(createdElsewhere);
+    }
+
+    @Test
+    void searchSweets_withCombinedFilters_shouldIssueSingleQuery() {
+        // given
+        when(sweetRepository.search(any(SweetSearchCriteria.class))).thenReturn(List.of());
+
+        // when
+        sweetService.searchSweets("Chocolate", "Candy", new BigDecimal("1"), new BigDecimal("10"));
+
+        // then
+        verify(sweetRepository, times(1)).search(argThat(criteria ->
+                criteria.getName().equals("Chocolate") && criteria.getCategory().equals("Candy")));
+        verify(sweetRepository, never()).findAll();
+    }
+
+    @Test
+    void getSweetsPage_withMoreResults_shouldReturnCursorForNextPage() {
+        // given
+        SweetSearchCriteria all = new SweetSearchCriteria(null, null, null, null);
+        when(sweetRepository.findPage(eq(all), isNull(), eq(3))).thenReturn(List.of(
+                new Sweet("a1", "Chocolate", "Candy", new BigDecimal("5.99"), 100),
+                new Sweet("a2", "Lollipop", "Candy", new BigDecimal("2.99"), 50),
+                new Sweet("a3", "Toffee", "Candy", new BigDecimal("1.99"), 10)
+        ));
+        when(sweetRepository.findPage(eq(all), eq("a2"), eq(3))).thenReturn(List.of(
+                new Sweet("a3", "Toffee", "Candy", new BigDecimal("1.99"), 10)
+        ));
+
+        // when
+        SweetPage first = sweetService.getSweetsPage(all, null, 2);
+        SweetPage second = sweetService.getSweetsPage(all, first.getNext(), 2);
+
+        // then
+        assertThat(first.getItems()).extracting("id").containsExactly("a1", "a2");
+        assertThat(first.getNext()).isNotNull();
+        assertThat(second.getItems()).extracting("id").containsExactly("a3");
+        assertThat(second.getNext()).isNull();
+    }
+
+    @Test
+    void getSweetsPage_withInvalidLimitOrCursor_shouldThrowException() {
+        SweetSearchCriteria all = new SweetSearchCriteria(null, null, null, null);
+
+        assertThatThrownBy(() -> sweetService.getSweetsPage(all, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sweetService.getSweetsPage(all, "%%%", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
     @Test
     void purchaseSweet_withSufficientStock_shouldDecreaseQuantity() {
         // given
-        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
-        when(sweetRepository.findById("1")).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
+        Sweet updated = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 90);
+        when(sweetRepository.decrementQuantity("1", 10)).thenReturn(Optional.of(updated));
 
         // when
         Sweet result = sweetService.purchaseSweet("1", 10);
 
         // then
         assertThat(result.getQuantity()).isEqualTo(90);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        verify(sweetRepository, times(1)).decrementQuantity("1", 10);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof SweetChangedEvent changed
+                        && changed.getType() == SweetChangedEvent.Type.PURCHASED
+                        && changed.getSweet() == updated));
+        verify(sweetRepository, never()).findById(anyString());
+        verify(sweetRepository, never()).save(any(Sweet.class));
+        assertThat(purchases("single", "success")).isEqualTo(1);
     }
 
     @Test
     void purchaseSweet_withInsufficientStock_shouldThrowException() {
         // given
-        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 5);
-        when(sweetRepository.findById("1")).thenReturn(Optional.of(sweet));
+        when(sweetRepository.decrementQuantity("1", 10)).thenReturn(Optional.empty());
+        when(sweetRepository.findById("1"))
+                .thenReturn(Optional.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 5)));
 
         // then
         assertThatThrownBy(() -> sweetService.purchaseSweet("1", 10))
                 .isInstanceOf(InsufficientStockException.class)
                 .hasMessageContaining("Insufficient stock");
+        assertThat(purchases("single", "insufficient_stock")).isEqualTo(1);
+        assertThat(purchases("single", "success")).isZero();
+    }
+
+    @Test
+    void purchaseSweet_repeatedlyRejected_shouldLookUpSweetOnceAndSkipStackTrace() {
+        // given
+        when(sweetRepository.decrementQuantity("1", 10)).thenReturn(Optional.empty());
+        when(sweetRepository.findById("1"))
+                .thenReturn(Optional.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 0)));
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> sweetService.purchaseSweet("1", 10))
+                    .isInstanceOf(InsufficientStockException.class)
+                    .satisfies(ex -> assertThat(ex.getStackTrace()).isEmpty());
+        }
+
+        // then
+        verify(sweetRepository, times(1)).findById("1");
+        verify(sweetRepository, never()).existsById(anyString());
     }
 
     @Test
     void purchaseSweet_withNonExistentSweet_shouldThrowException() {
         // given
+        when(sweetRepository.decrementQuantity("999", 1)).thenReturn(Optional.empty());
         when(sweetRepository.findById("999")).thenReturn(Optional.empty());
 
         // then
         assertThatThrownBy(() -> sweetService.purchaseSweet("999", 1))
                 .isInstanceOf(SweetNotFoundException.class);
+        assertThat(purchases("single", "not_found")).isEqualTo(1);
     }
 
     @Test
     void purchaseSweet_withInvalidQuantity_shouldThrowException() {
-        // given
-        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
-        when(sweetRepository.findById("1")).thenReturn(Optional.of(sweet));
-
         // then
         assertThatThrownBy(() -> sweetService.purchaseSweet("1", 0))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("must be positive");
+
+        verify(sweetRepository, never()).decrementQuantity(anyString(), anyInt());
     }
 
     @Test
-    void restockSweet_shouldIncreaseQuantity() {
+    void purchaseSweets_withAvailableStock_shouldApplyWholeBasket() {
         // given
-        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
-        when(sweetRepository.findById("1")).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
+        List<PurchaseLine> lines = List.of(new PurchaseLine("1", 2), new PurchaseLine("2", 3), new PurchaseLine("1", 1));
+        List<Sweet> updated = List.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 97),
+                new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 47)
+        );
+        when(sweetRepository.decrementQuantities(Map.of("1", 3, "2", 3))).thenReturn(Optional.of(updated));
 
         // when
-        Sweet result = sweetService.restockSweet("1", 50);
+        BatchPurchaseResponse result = sweetService.purchaseSweets(lines);
 
         // then
-        assertThat(result.getQuantity()).isEqualTo(150);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        assertThat(result.isCompleted()).isTrue();
+        assertThat(result.getLines()).extracting("status").containsOnly(PurchaseLineStatus.PURCHASED);
+        assertThat(result.getLines().get(1).getRemaining()).isEqualTo(47);
+        assertThat(result.getSweets()).hasSize(2);
+        verify(sweetRepository, never()).findAllById(any());
     }
 
     @Test
-    void restockSweet_withNullQuantity_shouldHandleGracefully() {
+    void purchaseSweets_withOneShortLine_shouldReportEachLine() {
         // given
-        Sweet sweet = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), null);
-        when(sweetRepository.findById("1")).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
+        List<PurchaseLine> lines = List.of(new PurchaseLine("1", 2), new PurchaseLine("2", 10), new PurchaseLine("3", 1));
+        when(sweetRepository.decrementQuantities(any())).thenReturn(Optional.empty());
+        when(sweetRepository.findAllById(any())).thenReturn(List.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100),
+                new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 5)
+        ));
+
+        // when
+        BatchPurchaseResponse result = sweetService.purchaseSweets(lines);
+
+        // then
+        assertThat(result.isCompleted()).isFalse();
+        assertThat(result.getLines()).extracting("status").containsExactly(
+                PurchaseLineStatus.NOT_APPLIED,
+                PurchaseLineStatus.INSUFFICIENT_STOCK,
+                PurchaseLineStatus.NOT_FOUND);
+    }
+
+    @Test
+    void restockSweet_shouldIncreaseQuantity() {
+        // given
+        Sweet updated = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 150);
+        when(sweetRepository.incrementQuantity("1", 50)).thenReturn(Optional.of(updated));
 
         // when
         Sweet result = sweetService.restockSweet("1", 50);
 
         // then
-        assertThat(result.getQuantity()).isEqualTo(50);
+        assertThat(result.getQuantity()).isEqualTo(150);
+        verify(sweetRepository, times(1)).incrementQuantity("1", 50);
+        verify(sweetRepository, never()).save(any(Sweet.class));
+    }
+
+    @Test
+    void restockSweet_withNonExistentSweet_shouldThrowException() {
+        // given
+        when(sweetRepository.incrementQuantity("999", 50)).thenReturn(Optional.empty());
+
+        // then
+        assertThatThrownBy(() -> sweetService.restockSweet("999", 50))
+                .isInstanceOf(SweetNotFoundException.class);
     }
 
     @Test
     void updateSweet_shouldUpdateExistingSweet() {
         // given
-        Sweet existing = new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
         Sweet updated = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
-        when(sweetRepository.findById("1")).thenReturn(Optional.of(existing));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(existing);
+        Sweet saved = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
+        saved.setVersion(4L);
+        when(sweetRepository.updateDetails("1", updated, 3L)).thenReturn(Optional.of(saved));
 
         // when
-        sweetService.updateSweet("1", updated);
+        Sweet result = sweetService.updateSweet("1", updated, 3L);
 
         // then
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        assertThat(result.getVersion()).isEqualTo(4L);
+        verify(sweetRepository, never()).save(any(Sweet.class));
+    }
+
+    @Test
+    void updateSweet_withStaleVersion_shouldThrowConflict() {
+        // given
+        Sweet updated = new Sweet("1", "Dark Chocolate", "Candy", new BigDecimal("6.99"), 150);
+        when(sweetRepository.updateDetails("1", updated, 2L)).thenReturn(Optional.empty());
+        when(sweetRepository.existsById("1")).thenReturn(true);
+
+        // then
+        assertThatThrownBy(() -> sweetService.updateSweet("1", updated, 2L))
+                .isInstanceOf(SweetVersionConflictException.class);
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void updateSweet_withNonExistentId_shouldThrowException() {
         // given
         Sweet updated = new Sweet("999", "Chocolate", "Candy", new BigDecimal("5.99"), 100);
-        when(sweetRepository.findById("999")).thenReturn(Optional.empty());
+        when(sweetRepository.updateDetails("999", updated, null)).thenReturn(Optional.empty());
+        when(sweetRepository.existsById("999")).thenReturn(false);
 
         // then
-        assertThatThrownBy(() -> sweetService.updateSweet("999", updated))
+        assertThatThrownBy(() -> sweetService.updateSweet("999", updated, null))
                 .isInstanceOf(SweetNotFoundException.class);
     }
 
+    @Test
+    void getCatalogVersion_withoutLocalWrites_shouldAdvanceOnceCachedResultsExpire() throws Exception {
+        // given: another instance, or a direct database edit, changes the catalog behind this one's back
+        SweetCache shortLived = new SweetCache(1000, Duration.ofMillis(50));
+        SweetService service = new SweetService(sweetRepository, shortLived, searchIndex, facetIndex, eventPublisher,
+                new SimpleMeterRegistry());
+        when(sweetRepository.findAll()).thenReturn(List.of());
+        service.getAllSweets();
+        long before = service.getCatalogVersion();
+        when(sweetRepository.findAll()).thenReturn(List.of(new Sweet("9", "Barfi", "Indian", BigDecimal.TEN, 1)));
+
+        // when
+        Thread.sleep(100);
+        long after = service.getCatalogVersion();
+
+        // then: validators built from the version roll over, and the list is loaded again
+        assertThat(after).isGreaterThan(before);
+        assertThat(service.getAllSweets()).extracting(Sweet::getId).containsExactly("9");
+    }
+
+    @Test
+    void getCatalogVersion_shouldAdvanceOnWrite() {
+        // given
+        long before = sweetService.getCatalogVersion();
+        when(sweetRepository.incrementQuantity("1", 5))
+                .thenReturn(Optional.of(new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 5)));
+
+        // when
+        sweetService.restockSweet("1", 5);
+
+        // then
+        assertThat(sweetService.getCatalogVersion()).isGreaterThan(before);
+    }
+
+    @Test
+    void importSweets_shouldAnnounceOnlyWrittenSweets() {
+        // given
+        Sweet fresh = new Sweet(null, "Barfi", "Indian", new BigDecimal("12.00"), 30);
+        Sweet existing = new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 80);
+        Sweet rejected = new Sweet("3", "Toffee", "Candy", new BigDecimal("1.50"), 10);
+        when(sweetRepository.importSweets(anyList())).thenAnswer(invocation -> {
+            fresh.setId("1");
+            return new SweetImportResult(Set.of(0), Map.of(2, "E11000 duplicate key error"));
+        });
+        Sweet storedExisting = new Sweet("2", "Lollipop", "Candy", new BigDecimal("2.99"), 80);
+        storedExisting.setVersion(4L);
+        when(sweetRepository.findAllById(any())).thenReturn(List.of(
+                new Sweet("1", "Barfi", "Indian", new BigDecimal("12.00"), 30), storedExisting));
+
+        // when
+        SweetImportResult result = sweetService.importSweets(List.of(fresh, existing, rejected));
+
+        // then
+        assertThat(result.getFailures()).containsOnlyKeys(2);
+        verify(sweetRepository).findAllById(argThat(ids -> ids.equals(Set.of("1", "2"))));
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(published.capture());
+        assertThat(published.getValue()).isInstanceOf(SweetsChangedEvent.class);
+        List<SweetChangedEvent> changes = ((SweetsChangedEvent) published.getValue()).getChanges();
+        assertThat(changes).extracting(SweetChangedEvent::getType, SweetChangedEvent::getSweetId)
+                .containsExactly(tuple(SweetChangedEvent.Type.CREATED, "1"),
+                        tuple(SweetChangedEvent.Type.UPDATED, "2"));
+        assertThat(changes.get(1).getSweet().getVersion()).isEqualTo(4L);
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
     @Test
     void deleteSweet_withValidId_shouldDelete() {
         // given
@@ -188,6 +504,35 @@ class SweetServiceTest {
         verify(sweetRepository, times(1)).deleteById("1");
     }
 
+    @Test
+    void getCategoryFacets_beforeSummaryLoads_shouldAggregateInDatabase() {
+        // given
+        List<CategoryFacet> aggregated = List.of(new CategoryFacet("Candy", 2, new BigDecimal("1.00"),
+                new BigDecimal("2.00"), 10, new BigDecimal("15.00")));
+        when(sweetRepository.aggregateCategoryFacets()).thenReturn(aggregated);
+
+        // when
+        List<CategoryFacet> facets = sweetService.getCategoryFacets();
+
+        // then
+        assertThat(facets).isSameAs(aggregated);
+    }
+
+    @Test
+    void getCategoryFacets_afterSummaryLoads_shouldNotQueryDatabase() {
+        // given
+        when(sweetRepository.streamAll(null)).thenReturn(Stream.of(
+                new Sweet("1", "Chocolate", "Candy", new BigDecimal("5.99"), 10)));
+        facetIndex.rebuild();
+
+        // when
+        List<CategoryFacet> facets = sweetService.getCategoryFacets();
+
+        // then
+        assertThat(facets).extracting(CategoryFacet::getCategory).containsExactly("Candy");
+        verify(sweetRepository, never()).aggregateCategoryFacets();
+    }
+
     @Test
     void deleteSweet_withInvalidId_shouldThrowException() {
         // given
@@ -197,4 +542,8 @@ class SweetServiceTest {
         assertThatThrownBy(() -> sweetService.deleteSweet("999"))
                 .isInstanceOf(SweetNotFoundException.class);
     }
-}
\ No newline at end of file
+
+    private double purchases(String kind, String outcome) {
+        return meterRegistry.get("sweetshop.purchases").tag("kind", kind).tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,151 @@
+package com.sweetshop.backend.sweets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.backend.sweets.controller.SweetStreamController;
+import com.sweetshop.backend.sweets.event.SweetChangedEvent;
+import com.sweetshop.backend.sweets.model.Sweet;
+import com.sweetshop.backend.sweets.stream.SweetStreamBroadcaster;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SweetStreamBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void stream_shouldPushCompactDeltasToSubscribers() throws Exception {
+        // given
+        SweetStreamBroadcaster broadcaster = broadcaster(new SyncTaskExecutor(), 16, 10);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SweetStreamController(broadcaster)).build();
+        MvcResult result = mockMvc.perform(get("/api/sweets/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Sweet sweet = new Sweet("1", "Chocolate Bar", "Chocolate", new BigDecimal("2.50"), 7);
+        sweet.setVersion(3L);
+
+        // when
+        broadcaster.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.PURCHASED, sweet));
+        broadcaster.onSweetChanged(SweetChangedEvent.deleted("2"));
+
+        // then
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("id:1\nevent:sweet\ndata:{\"type\":\"PURCHASED\",\"id\":\"1\",\"price\":2.50,\"quantity\":7,\"version\":3}");
+        assertThat(body).contains("id:2\nevent:sweet\ndata:{\"type\":\"DELETED\",\"id\":\"2\"}");
+        assertThat(body).doesNotContain("Chocolate Bar");
+    }
+
+    @Test
+    void stream_withSeveralSubscribersOnPooledExecutor_shouldSendEveryEventIntactToEach() throws Exception {
+        // given
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            SweetStreamBroadcaster broadcaster = broadcaster(pool::execute, 256, 10);
+            MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SweetStreamController(broadcaster)).build();
+            List<MvcResult> streams = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                streams.add(mockMvc.perform(get("/api/sweets/stream")).andExpect(request().asyncStarted()).andReturn());
+            }
+            Sweet sweet = new Sweet("1", "Chocolate Bar", "Chocolate", new BigDecimal("2.50"), 7);
+
+            // when
+            for (int i = 0; i < 100; i++) {
+                broadcaster.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.PURCHASED, sweet));
+            }
+
+            // then
+            for (MvcResult stream : streams) {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (!isComplete(stream.getResponse().getContentAsString()) && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                String body = stream.getResponse().getContentAsString();
+                assertThat(body.split("\n\n")).hasSize(100)
+                        .allMatch(frame -> frame.matches("id:\\d+\nevent:sweet\ndata:\\{[^\n]*\\}"));
+            }
+            assertThat(broadcaster.getSubscriberCount()).isEqualTo(3);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void stream_withVirtualThreadsEnabled_shouldStartAndDeliverOnAnyJvm() throws Exception {
+        // given: the flag is on, but Boot only honours it on Java 21 and later
+        MockEnvironment environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+        SweetStreamBroadcaster broadcaster = new SweetStreamBroadcaster(new ObjectMapper(), meterRegistry, 16, 10,
+                Duration.ofMinutes(1), environment);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SweetStreamController(broadcaster)).build();
+        MvcResult result = mockMvc.perform(get("/api/sweets/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // when
+        broadcaster.onSweetChanged(SweetChangedEvent.deleted("2"));
+
+        // then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.getResponse().getContentAsString().endsWith("\n\n") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(result.getResponse().getContentAsString())
+                .contains("id:1\nevent:sweet\ndata:{\"type\":\"DELETED\",\"id\":\"2\"}");
+    }
+
+    @Test
+    void onSweetChanged_whenSubscriberFallsBehind_shouldEvictIt() {
+        // given: an executor that never drains, so the one-slot buffer overflows on the second event
+        TaskExecutor stalled = task -> { };
+        SweetStreamBroadcaster broadcaster = broadcaster(stalled, 1, 10);
+        broadcaster.subscribe();
+        Sweet sweet = new Sweet("1", "Chocolate Bar", "Chocolate", new BigDecimal("2.50"), 7);
+
+        // when
+        broadcaster.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.RESTOCKED, sweet));
+        broadcaster.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.PURCHASED, sweet));
+
+        // then
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+        assertThat(meterRegistry.counter("sweetshop.stream.evictions").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void stream_whenSubscriberLimitReached_shouldReturn503() throws Exception {
+        // given
+        SweetStreamBroadcaster broadcaster = broadcaster(new SyncTaskExecutor(), 16, 1);
+        broadcaster.subscribe();
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SweetStreamController(broadcaster)).build();
+
+        // when / then
+        mockMvc.perform(get("/api/sweets/stream"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    // The last frame has arrived and its trailing blank line has been written
+    private static boolean isComplete(String body) {
+        return body.contains("id:100\n") && body.endsWith("\n\n");
+    }
+
+    private SweetStreamBroadcaster broadcaster(TaskExecutor executor, int bufferSize, int maxSubscribers) {
+        return new SweetStreamBroadcaster(new ObjectMapper(), executor, meterRegistry, bufferSize, maxSubscribers,
+                Duration.ofMinutes(1));
+    }
+}